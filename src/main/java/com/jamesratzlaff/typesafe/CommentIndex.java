@@ -0,0 +1,75 @@
+package com.jamesratzlaff.typesafe;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.jamesratzlaff.typesafe.CommentReader.Comment;
+
+/**
+ * A line keyed lookup table over the {@link Comment comments} of a single
+ * resource. It is built once per resource so that finding the comments that
+ * belong to a node is a constant time array access rather than a scan over
+ * every comment in the file.
+ *
+ * @author jamesratzlaff
+ *
+ */
+public class CommentIndex {
+	private static final Comment[] EMPTY = new Comment[0];
+
+	private final Comment[] prefixedByLine;
+	private final Comment[] inlineByLine;
+
+	public CommentIndex(List<Comment> comments) {
+		if (comments == null) {
+			comments = Collections.emptyList();
+		}
+		int maxPrefixedLine = -1;
+		int maxInlineLine = -1;
+		for (int i = 0; i < comments.size(); i++) {
+			Comment comment = comments.get(i);
+			maxPrefixedLine = Math.max(maxPrefixedLine, comment.getLineOfFirstNonWhiteSpaceChar());
+			if (comment.isInline()) {
+				maxInlineLine = Math.max(maxInlineLine, comment.getLineNo());
+			}
+		}
+		this.prefixedByLine = maxPrefixedLine > -1 ? new Comment[maxPrefixedLine + 1] : EMPTY;
+		this.inlineByLine = maxInlineLine > -1 ? new Comment[maxInlineLine + 1] : EMPTY;
+		for (int i = 0; i < comments.size(); i++) {
+			Comment comment = comments.get(i);
+			putIfAbsent(prefixedByLine, comment.getLineOfFirstNonWhiteSpaceChar(), comment);
+			if (comment.isInline()) {
+				putIfAbsent(inlineByLine, comment.getLineNo(), comment);
+			}
+		}
+	}
+
+	private static void putIfAbsent(Comment[] byLine, int line, Comment comment) {
+		if (line > -1 && byLine[line] == null) {
+			byLine[line] = comment;
+		}
+	}
+
+	private static Comment get(Comment[] byLine, int line) {
+		return line > -1 && line < byLine.length ? byLine[line] : null;
+	}
+
+	/**
+	 * @param line a 0 based line number
+	 * @return the first comment whose next non-whitespace line is {@code line},
+	 *         or {@code null} if there isn't one
+	 */
+	public Comment getPrefixed(int line) {
+		return get(prefixedByLine, line);
+	}
+
+	/**
+	 * @param line a 0 based line number
+	 * @return the first inline comment that starts on {@code line}, or
+	 *         {@code null} if there isn't one
+	 */
+	public Comment getInline(int line) {
+		return get(inlineByLine, line);
+	}
+
+}
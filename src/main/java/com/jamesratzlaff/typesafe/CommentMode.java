@@ -0,0 +1,62 @@
+package com.jamesratzlaff.typesafe;
+
+/**
+ * Controls how comments in a yaml source are collected and attached to the
+ * {@link com.typesafe.config.ConfigOrigin origins} of the converted values.
+ *
+ * @author jamesratzlaff
+ *
+ */
+public enum CommentMode {
+	/**
+	 * Comments are collected by snakeyaml while the document is being composed
+	 * and read straight off of the composed nodes
+	 */
+	PARSER,
+	/**
+	 * Comments are collected by re-scanning the source line by line with the
+	 * {@link CommentReader}
+	 */
+	SCAN,
+	/**
+	 * Comments are located by snakeyaml while the document is being composed
+	 * but only where their text starts and ends is kept. The text is read out of
+	 * the {@link YamlSource} whenever
+	 * {@link com.typesafe.config.ConfigOrigin#comments()} is called, so the
+	 * source stays in memory for as long as a value with a comment does
+	 */
+	LAZY,
+	/**
+	 * Comments are not collected at all
+	 */
+	NONE;
+
+	/**
+	 * @return {@code true} if snakeyaml needs to attach comments to the nodes it
+	 *         composes for this mode to work
+	 */
+	public boolean processesComments() {
+		return PARSER.equals(this) || LAZY.equals(this);
+	}
+
+	/**
+	 * @return the {@link CommentMode} named by the
+	 *         {@value YAML_CONF#COMMENT_MODE_PROPERTY} system property, or
+	 *         {@link #SCAN} if it is not set
+	 */
+	public static CommentMode getDefault() {
+		return fromString(System.getProperty(YAML_CONF.COMMENT_MODE_PROPERTY), SCAN);
+	}
+
+	public static CommentMode fromString(String name, CommentMode defaultValue) {
+		if (name != null) {
+			String trimmed = name.trim();
+			for (CommentMode mode : values()) {
+				if (mode.name().equalsIgnoreCase(trimmed)) {
+					return mode;
+				}
+			}
+		}
+		return defaultValue;
+	}
+}
@@ -1,9 +1,6 @@
 package com.jamesratzlaff.typesafe;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.Reader;
 import java.io.Serializable;
 import java.net.MalformedURLException;
 import java.net.URI;
@@ -14,6 +11,7 @@ import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collections;
@@ -34,7 +32,6 @@ import org.yaml.snakeyaml.nodes.Node;
 import org.yaml.snakeyaml.nodes.NodeTuple;
 import org.yaml.snakeyaml.nodes.ScalarNode;
 import org.yaml.snakeyaml.nodes.SequenceNode;
-import org.yaml.snakeyaml.reader.UnicodeReader;
 
 /**
  * Aggregates comment data for use with attaching it so some configuration item (since snakeyaml ignores comments).
@@ -356,29 +353,39 @@ public class CommentReader {
 	}
 	
 	public static List<Comment> readComments(URL url, List<Node> nodes){
-		List<ScalarNode> toUse = Collections.emptyList();
-		if(nodes==null) {
-			if(url!=null) {
-				toUse = new ArrayList<ScalarNode>();
-				nodes = YamlConfigObjConverter.getRootNodes(url);
-				for(int i=0;i<nodes.size();i++) {
-					Node current = nodes.get(i);
-					getScalarNodes(toUse, current);
-				}
-			}
+		if (url == null) {
+			return Collections.emptyList();
 		}
-		List<ScalarNode> scalarNodes = toUse;
-		List<CommentTracker> commentsTrackers = Collections.emptyList();
-		if (url != null) {
-			try (Stream<String> lines = lines(url)) {
-				commentsTrackers = readComments(lines.iterator(),scalarNodes);
-			} catch (IOException ioe) {
-				ioe.printStackTrace();
-			}
+		YamlSource source = null;
+		try {
+			source = YamlSource.of(url);
+		} catch (IOException ioe) {
+			ioe.printStackTrace();
+		}
+		return readComments(url, source, nodes);
+	}
+
+	/**
+	 *
+	 * @param url the resource the comments will be attributed to, may be {@code null}
+	 * @param source the already buffered contents of the yaml document
+	 * @param nodes the root nodes composed from {@code source}, or {@code null} to compose them here
+	 * @return the comments found in {@code source}
+	 */
+	public static List<Comment> readComments(URL url, YamlSource source, List<Node> nodes){
+		if (source == null) {
+			return Collections.emptyList();
+		}
+		if (nodes == null) {
+			nodes = YamlConfigObjConverter.getRootNodes(source.reader());
+		}
+		List<ScalarNode> scalarNodes = new ArrayList<ScalarNode>();
+		for (int i = 0; i < nodes.size(); i++) {
+			getScalarNodes(scalarNodes, nodes.get(i));
+		}
+		try (Stream<String> lines = source.lines()) {
+			return new Scan(url, lines.iterator(), scalarNodes).readThrough(Integer.MAX_VALUE);
 		}
-		List<Comment> cmnts = commentsTrackers.stream().map(ct -> ct.toComment(url)).sorted()
-				.collect(Collectors.toList());
-		return cmnts;
 	}
 
 	public static List<Comment> readComments(URL url) {
@@ -386,60 +393,129 @@ public class CommentReader {
 		
 	}
 
-	private static List<CommentTracker> readComments(Iterator<String> iterator,List<ScalarNode> scalarNodes) {
-		int lineNo = 0;
-		CommentTracker commentTracker = new CommentTracker();
-		ArrayList<CommentTracker> commentTrackers = new ArrayList<CommentTracker>();
-		while (iterator.hasNext()) {
-			String line = iterator.next();
-			boolean completed =false;
-			if(commentTracker.getCommentLines().size()==1&&commentTracker.getFirstCommentLineNo()!=-1&&commentTracker.isInline()) {
-				if(!line.isBlank()&&!COMMENT_CONTINUED.matcher(line).matches()) {
-					for(int i=0;i<line.length();i++) {
-						int currentChar=line.charAt(i);
-						if(!Character.isWhitespace(currentChar)) {
-							commentTracker.nonCommentCharOffset=i;
-							break;
+	/**
+	 * Reads the comments of a source a section at a time, so a source with
+	 * several documents can have the comments of each document read as it is
+	 * needed without reading the lines before it again.
+	 */
+	static class Scan {
+		private final URL url;
+		private final Iterator<String> iterator;
+		private final ScalarNodeSweep scalarNodes;
+		private CommentTracker commentTracker = new CommentTracker();
+		private String heldLine;
+		private int lineNo = 0;
+
+		/**
+		 * @param url the resource the comments will be attributed to, may be {@code null}
+		 * @param iterator the lines of the source
+		 * @param nodes the scalar nodes of the lines about to be read, more can be
+		 *              added with {@link #addNodes(Node)}
+		 */
+		Scan(URL url, Iterator<String> iterator, List<ScalarNode> nodes) {
+			this.url = url;
+			this.iterator = iterator;
+			this.scalarNodes = new ScalarNodeSweep(nodes);
+		}
+
+		/**
+		 * Adds the scalar nodes of a document that starts after every line read so far
+		 */
+		void addNodes(Node document) {
+			scalarNodes.add(getScalarNodes(document));
+		}
+
+		/**
+		 * Reads up to and including {@code lastLine}, and past it for as long as
+		 * it takes to finish a comment that started on or before it
+		 *
+		 * @return the comments that were finished, in line order
+		 */
+		List<Comment> readThrough(int lastLine) {
+			ArrayList<CommentTracker> commentTrackers = new ArrayList<CommentTracker>();
+			while (lineNo <= lastLine || commentTracker.getFirstCommentLineNo() != -1) {
+				String line = heldLine;
+				heldLine = null;
+				if (line == null) {
+					if (!iterator.hasNext()) {
+						if (commentTracker.getFirstCommentLineNo() != -1) {
+							commentTrackers.add(commentTracker);
+							commentTracker = new CommentTracker();
 						}
+						break;
 					}
-					completed=true;
-					if(completed) {
-						commentTrackers.add(commentTracker);
-						commentTracker = new CommentTracker();
-						completed=false;
+					line = iterator.next();
+					if(commentTracker.getCommentLines().size()==1&&commentTracker.getFirstCommentLineNo()!=-1&&commentTracker.isInline()) {
+						if(!line.isBlank()&&!COMMENT_CONTINUED.matcher(line).matches()) {
+							for(int i=0;i<line.length();i++) {
+								int currentChar=line.charAt(i);
+								if(!Character.isWhitespace(currentChar)) {
+									commentTracker.nonCommentCharOffset=i;
+									break;
+								}
+							}
+							commentTrackers.add(commentTracker);
+							commentTracker = new CommentTracker();
+							if (lineNo > lastLine) {
+								// the rest of this line may belong to nodes that have not been added yet
+								heldLine = line;
+								break;
+							}
+						}
 					}
 				}
+				if (commentTracker.process(line, lineNo,scalarNodes)) {
+					commentTrackers.add(commentTracker);
+					commentTracker = new CommentTracker();
+				}
+				lineNo++;
 			}
-			if(!completed) {
-				completed = commentTracker.process(line, lineNo,scalarNodes);
-			}
-			
-			if (completed) {
-				commentTrackers.add(commentTracker);
-				commentTracker = new CommentTracker();
-			}
-			lineNo++;
-		}
-		if (commentTracker.getFirstCommentLineNo() != -1) {
-			commentTrackers.add(commentTracker);
+			return commentTrackers.stream().map(ct -> ct.toComment(url)).sorted().collect(Collectors.toList());
 		}
-		return commentTrackers;
 	}
 
-	private static Stream<String> lines(URL url) throws IOException {
-		return url != null ? lines(url.openStream()) : Stream.empty();
-	}
+	/**
+	 * Answers which scalar node spans a given line for line numbers that are
+	 * asked for in ascending order. The nodes are sorted once up front, after
+	 * that each lookup is amortized constant time since a node is pushed and
+	 * popped at most once over the whole sweep.
+	 */
+	static class ScalarNodeSweep {
+		private final List<ScalarNode> sortedNodes;
+		private final ArrayDeque<ScalarNode> open = new ArrayDeque<ScalarNode>();
+		private int nextIndex = 0;
 
-	private static Stream<String> lines(InputStream is) {
-		return is != null ? lines(new UnicodeReader(is)) : Stream.empty();
-	}
+		ScalarNodeSweep(List<ScalarNode> nodes) {
+			List<ScalarNode> sorted = nodes != null ? new ArrayList<ScalarNode>(nodes) : new ArrayList<ScalarNode>(0);
+			sorted.sort(CommentTracker.scalarNodeComparator);
+			this.sortedNodes = sorted;
+		}
 
-	private static Stream<String> lines(Reader r) {
-		return r != null ? lines(new BufferedReader(r)) : Stream.empty();
-	}
+		/**
+		 * Adds nodes that all start after every node already in the sweep
+		 */
+		void add(List<ScalarNode> nodes) {
+			List<ScalarNode> sorted = new ArrayList<ScalarNode>(nodes);
+			sorted.sort(CommentTracker.scalarNodeComparator);
+			sortedNodes.addAll(sorted);
+		}
 
-	private static Stream<String> lines(BufferedReader br) {
-		return br != null ? br.lines() : Stream.empty();
+		/**
+		 * @param line a line number that is greater than or equal to the one given in the previous call
+		 * @return of the scalar nodes that start on or before and end on or after
+		 *         {@code line}, the one that starts last, or {@code null} if there
+		 *         are none
+		 */
+		ScalarNode getScalarNodeInLineNumber(int line) {
+			while (nextIndex < sortedNodes.size() && sortedNodes.get(nextIndex).getStartMark().getLine() <= line) {
+				open.push(sortedNodes.get(nextIndex));
+				nextIndex++;
+			}
+			while (!open.isEmpty() && open.peek().getEndMark().getLine() < line) {
+				open.pop();
+			}
+			return open.peek();
+		}
 	}
 
 	static class CommentTracker {
@@ -491,7 +567,7 @@ public class CommentReader {
 		
 		
 		public static final Comparator<Mark> markComparator = Comparator.nullsLast(Comparator.comparingInt(Mark::getLine)).thenComparing(Mark::getIndex);
-		private static final Comparator<ScalarNode> scalarNodeComparator = Comparator.nullsLast(Comparator.comparing(ScalarNode::getStartMark, markComparator));
+		static final Comparator<ScalarNode> scalarNodeComparator = Comparator.nullsLast(Comparator.comparing(ScalarNode::getStartMark, markComparator));
 		private static boolean ScalarNodeContains(ScalarNode node, int line, int offset) {
 			Mark start = node.getStartMark();
 			Mark end = node.getEndMark();
@@ -503,29 +579,17 @@ public class CommentReader {
 					(line<endLine||(line==endLine&&offset<endColumn)));
 		}
 		
-		private static List<ScalarNode> getScalarNodesInLineNumber(int line, List<ScalarNode> nodes) {
-			return nodes.stream().filter(node->node.getStartMark().getLine()<=line&&node.getEndMark().getLine()>=line).sorted(scalarNodeComparator).collect(Collectors.toList());
-		}
-		private static ScalarNode getScalarNodeInLineNumber(int line, List<ScalarNode> nodes) {
-			List<ScalarNode> foundNodes = getScalarNodesInLineNumber(line, nodes);
-			if(!foundNodes.isEmpty()) {
-				return foundNodes.get(foundNodes.size()-1);
-			}
-			return null;
-		}
 		
 		/**
 		 * 
 		 * @param line
 		 * @param lineNo
+		 * @param scalarNodes the scalar nodes of the document {@code line} belongs to, swept in line order
 		 * @return {@code true} if this is done processing
 		 */
-		public boolean process(String line, int lineNo, List<ScalarNode> scalarNodes) {
-			if(line.contains("server-addr")) {
-				System.out.println("hmm");
-			}
+		public boolean process(String line, int lineNo, ScalarNodeSweep scalarNodes) {
 			boolean truth = false;
-			ScalarNode containingNode = firstCommentLineNo==-1?getScalarNodeInLineNumber(lineNo, scalarNodes):null;
+			ScalarNode containingNode = firstCommentLineNo==-1?scalarNodes.getScalarNodeInLineNumber(lineNo):null;
 			if(containingNode!=null) {
 				if(lineNo<containingNode.getEndMark().getLine()) {
 					return false;
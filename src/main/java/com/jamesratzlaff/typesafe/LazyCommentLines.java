@@ -0,0 +1,87 @@
+package com.jamesratzlaff.typesafe;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.Collectors;
+
+import org.yaml.snakeyaml.comments.CommentLine;
+import org.yaml.snakeyaml.error.Mark;
+
+/**
+ * A list of comment lines that only holds where the text of each comment
+ * starts and ends in the {@link YamlSource} it came from, the text is read out
+ * of the source every time it is asked for. The source is kept for as long as
+ * the list is.
+ *
+ * @author jamesratzlaff
+ *
+ */
+class LazyCommentLines extends AbstractList<String> implements RandomAccess {
+	private final YamlSource source;
+	private final int[] starts;
+	private final int[] ends;
+
+	private LazyCommentLines(YamlSource source, int[] starts, int[] ends) {
+		this.source = source;
+		this.starts = starts;
+		this.ends = ends;
+	}
+
+	/**
+	 * @param source       the source {@code commentLines} were scanned from, or
+	 *                     {@code null} if it wasn't kept
+	 * @param commentLines the comments
+	 * @return the text of {@code commentLines}, read out of {@code source} when
+	 *         it is asked for. It is copied right away if there is no source or
+	 *         the position of a comment in it can't be worked out.
+	 */
+	static List<String> of(YamlSource source, List<CommentLine> commentLines) {
+		if (source != null) {
+			int[] starts = new int[commentLines.size()];
+			int[] ends = new int[commentLines.size()];
+			boolean located = true;
+			for (int i = 0; i < commentLines.size() && located; i++) {
+				CommentLine commentLine = commentLines.get(i);
+				// the start mark is on the '#', the end mark just after the text
+				starts[i] = indexOf(source, commentLine.getStartMark()) + 1;
+				ends[i] = indexOf(source, commentLine.getEndMark());
+				located = starts[i] > 0 && ends[i] - starts[i] == commentLine.getValue().length();
+			}
+			if (located) {
+				return new LazyCommentLines(source, starts, ends);
+			}
+		}
+		return commentLines.stream().map(CommentLine::getValue).collect(Collectors.toList());
+	}
+
+	/**
+	 * @return the index in {@code source} of the character {@code mark} points
+	 *         at, {@code -1} if it isn't in the source. Mark columns count code
+	 *         points, not chars.
+	 */
+	private static int indexOf(YamlSource source, Mark mark) {
+		if (mark == null) {
+			return -1;
+		}
+		try {
+			return Character.offsetByCodePoints(source, source.getLineStart(mark.getLine()), mark.getColumn());
+		} catch (IndexOutOfBoundsException e) {
+			return -1;
+		}
+	}
+
+	@Override
+	public String get(int index) {
+		if (index < 0 || index >= starts.length) {
+			throw new IndexOutOfBoundsException("index " + index + " is out of bounds for size " + starts.length);
+		}
+		return source.subSequence(starts[index], ends[index]).toString();
+	}
+
+	@Override
+	public int size() {
+		return starts.length;
+	}
+
+}
@@ -6,6 +6,20 @@ package com.jamesratzlaff.typesafe;
  */
 public class YAML_CONF {
 	public static final String MULTI_DOC_KEY="---";
+	public static final String COMMENT_MODE_PROPERTY="com.jamesratzlaff.typesafe.yaml.comments";
+	public static final String STREAMING_PROPERTY="com.jamesratzlaff.typesafe.yaml.streaming";
+	public static final String MAX_ALIASES_PROPERTY="com.jamesratzlaff.typesafe.yaml.limits.maxAliases";
+	public static final String MAX_DEPTH_PROPERTY="com.jamesratzlaff.typesafe.yaml.limits.maxDepth";
+	public static final String MAX_NODES_PROPERTY="com.jamesratzlaff.typesafe.yaml.limits.maxNodes";
+	public static final String MAX_SIZE_PROPERTY="com.jamesratzlaff.typesafe.yaml.limits.maxSize";
+	public static final String MAX_ARRAY_INDEX_PROPERTY="com.jamesratzlaff.typesafe.yaml.limits.maxArrayIndex";
+	public static final String CACHE_MAX_SIZE_PROPERTY="com.jamesratzlaff.typesafe.yaml.cache.maxSize";
+	public static final String INCLUDE_PREFETCH_THREADS_PROPERTY="com.jamesratzlaff.typesafe.yaml.includes.prefetchThreads";
+	public static final String PARALLEL_PROPERTY="com.jamesratzlaff.typesafe.yaml.parallel";
+	public static final String FORK_THRESHOLD_PROPERTY="com.jamesratzlaff.typesafe.yaml.forkThreshold";
+	public static final String SNAPSHOT_DIR_PROPERTY="com.jamesratzlaff.typesafe.yaml.snapshotDir";
+	public static final String PRECOMPILED_PROPERTY="com.jamesratzlaff.typesafe.yaml.precompiled";
+	public static final String EAGER_TAG_PROCESSORS_PROPERTY="com.jamesratzlaff.typesafe.yaml.tagProcessors.eager";
 	private YAML_CONF() {
 		throw new UnsupportedOperationException("This constructor is private");
 	}
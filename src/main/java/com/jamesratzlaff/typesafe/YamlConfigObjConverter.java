@@ -7,28 +7,47 @@ import java.io.InputStream;
 import java.io.Reader;
 import java.io.Serializable;
 import java.net.URL;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+import org.yaml.snakeyaml.LoaderOptions;
 import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.comments.CommentLine;
+import org.yaml.snakeyaml.comments.CommentType;
 import org.yaml.snakeyaml.nodes.MappingNode;
 import org.yaml.snakeyaml.nodes.Node;
 import org.yaml.snakeyaml.nodes.NodeTuple;
 import org.yaml.snakeyaml.nodes.ScalarNode;
 import org.yaml.snakeyaml.nodes.SequenceNode;
+import org.yaml.snakeyaml.nodes.Tag;
 import org.yaml.snakeyaml.reader.UnicodeReader;
 
 import com.jamesratzlaff.typesafe.CommentReader.Comment;
+import com.jamesratzlaff.yaml.spi.impl.IncludeTagProcessor;
+import com.jamesratzlaff.yaml.spi.impl.service.IncludeResolver;
 import com.jamesratzlaff.yaml.spi.impl.service.TagProcessorService;
+import com.typesafe.config.ConfigException;
 import com.typesafe.config.ConfigFactory;
 import com.typesafe.config.ConfigIncludeContext;
 import com.typesafe.config.ConfigList;
@@ -49,39 +68,164 @@ public class YamlConfigObjConverter {
 	private final ConfigIncludeContext includeContext;
 	private final List<Node> rootNodes;
 	private final List<Comment> comments;
+	private final CommentIndex commentIndex;
+	private final CommentMode commentMode;
+	/**
+	 * The source the comments of {@link CommentMode#LAZY} are read from, if
+	 * there is one
+	 */
+	private final YamlSource source;
+	private final YamlParseLimits limits;
+	private final YamlParseLimits.Budget budget;
+	private final Map<Node, CompletableFuture<ConfigValue>> anchoredValues;
+	private final ThreadLocal<Set<Node>> convertingAnchors;
+	private final boolean parallel;
+	private final int forkThreshold;
+	private YamlConversionMemo memo;
+	private Map<Node, YamlConversionMemo.Hash> hashes;
+	private Set<YamlConversionMemo.Hash> live;
 	private ConfigValue confValue;
 
 	public YamlConfigObjConverter(ConfigOrigin configOrigin, ConfigIncludeContext includeContext, Reader reader) {
 		this(configOrigin, includeContext, reader, null);
 	}
 
+	public YamlConfigObjConverter(ConfigOrigin configOrigin, ConfigIncludeContext includeContext, YamlSource source) {
+		this(configOrigin, includeContext, source, CommentMode.getDefault());
+	}
+
+	public YamlConfigObjConverter(ConfigOrigin configOrigin, ConfigIncludeContext includeContext, YamlSource source,
+			CommentMode commentMode) {
+		this(configOrigin, includeContext, source, commentMode, YamlParseLimits.getDefault());
+	}
+
+	public YamlConfigObjConverter(ConfigOrigin configOrigin, ConfigIncludeContext includeContext, YamlSource source,
+			CommentMode commentMode, YamlParseLimits limits) {
+		this(configOrigin, includeContext,
+				compose(configOrigin, source, commentMode != null && commentMode.processesComments(), limits), null,
+				source, commentMode, limits);
+	}
+
 	public YamlConfigObjConverter(ConfigOrigin configOrigin, ConfigIncludeContext includeContext, List<Node> rootNodes,
 			List<Comment> comments) {
+		this(configOrigin, includeContext, rootNodes, comments, null, CommentMode.SCAN, YamlParseLimits.getDefault());
+	}
+
+	public YamlConfigObjConverter(ConfigOrigin configOrigin, ConfigIncludeContext includeContext, Reader reader,
+			List<Comment> comments) {
+		this(configOrigin, includeContext, toSource(configOrigin, reader), comments);
+	}
+
+	private YamlConfigObjConverter(ConfigOrigin configOrigin, ConfigIncludeContext includeContext, YamlSource source,
+			List<Comment> comments) {
+		this(configOrigin, includeContext, compose(configOrigin, source, false, YamlParseLimits.getDefault()),
+				comments, source, CommentMode.SCAN, YamlParseLimits.getDefault());
+	}
+
+	YamlConfigObjConverter(ConfigOrigin configOrigin, ConfigIncludeContext includeContext, List<Node> rootNodes,
+			List<Comment> comments, YamlSource source, CommentMode commentMode, YamlParseLimits limits) {
 		this.configOrigin = configOrigin;
+		this.limits = limits != null ? limits : YamlParseLimits.getDefault();
+		this.budget = this.limits.newBudget();
 		this.includeContext =includeContext!=null?includeContext.setParseOptions(includeContext.parseOptions().setAllowMissing(true)):null;
+		this.commentMode = commentMode != null ? commentMode : CommentMode.SCAN;
+		this.source = CommentMode.LAZY.equals(this.commentMode) ? source : null;
 		List<Node> toUse = rootNodes == null ? configOrigin != null ? getRootNodes(configOrigin.url()) : null
 				: rootNodes;
 		this.rootNodes = toUse != null ? toUse : Collections.emptyList();
-		if (comments == null) {
-			if (this.configOrigin != null) {
-				comments = CommentReader.readComments(this.configOrigin.url(), this.rootNodes);
+		if (comments == null && CommentMode.SCAN.equals(this.commentMode)) {
+			URL url = this.configOrigin != null ? this.configOrigin.url() : null;
+			if (source != null) {
+				comments = CommentReader.readComments(url, source, this.rootNodes);
+			} else if (url != null) {
+				comments = CommentReader.readComments(url, this.rootNodes);
 			}
 		}
 		if (comments == null) {
 			comments = Collections.emptyList();
 		}
 		this.comments = comments;
+		this.commentIndex = new CommentIndex(comments);
+		this.anchoredValues = new ConcurrentHashMap<Node, CompletableFuture<ConfigValue>>();
+		this.convertingAnchors = ThreadLocal.withInitial(() -> Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>()));
+		this.parallel = Boolean.getBoolean(YAML_CONF.PARALLEL_PROPERTY);
+		this.forkThreshold = Integer.getInteger(YAML_CONF.FORK_THRESHOLD_PROPERTY, 0);
 	}
 
-	public YamlConfigObjConverter(ConfigOrigin configOrigin, ConfigIncludeContext includeContext, Reader reader,
-			List<Comment> comments) {
-		this(configOrigin, includeContext, getRootNodes(reader), comments);
+	private static List<Node> compose(ConfigOrigin configOrigin, YamlSource source, boolean processComments,
+			YamlParseLimits limits) {
+		if (source == null) {
+			return null;
+		}
+		if (limits == null) {
+			limits = YamlParseLimits.getDefault();
+		}
+		limits.checkSize(configOrigin, source.length());
+		return getRootNodes(source.reader(), processComments, limits);
+	}
+
+	private static YamlSource toSource(ConfigOrigin configOrigin, Reader reader) {
+		try {
+			return YamlParseLimits.getDefault().read(configOrigin, reader);
+		} catch (IOException e) {
+			throw new ConfigException.IO(configOrigin, "Could not read yaml source", e);
+		}
 	}
 
 	public List<Comment> getComments() {
 		return this.comments;
 	}
 
+	/**
+	 * @return the limits
+	 */
+	public YamlParseLimits getLimits() {
+		return limits;
+	}
+
+	/**
+	 * @return {@code true} if the documents of a multi-doc source are converted in
+	 *         parallel, see {@link YAML_CONF#PARALLEL_PROPERTY}
+	 */
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	/**
+	 * @return the number of entries at or above which a mapping or sequence has
+	 *         its values converted on the fork-join pool, {@code 0} if they never
+	 *         are. See {@link YAML_CONF#FORK_THRESHOLD_PROPERTY}
+	 */
+	public int getForkThreshold() {
+		return forkThreshold;
+	}
+
+	/**
+	 * Makes this converter reuse the values of mappings and sequences that are
+	 * unchanged since the last conversion recorded in {@code memo}, and record
+	 * this conversion in it
+	 *
+	 * @return this converter
+	 */
+	public YamlConfigObjConverter reusing(YamlConversionMemo memo) {
+		this.memo = memo;
+		return this;
+	}
+
+	/**
+	 * @return the memo this converter reuses values from, or {@code null}
+	 */
+	public YamlConversionMemo getMemo() {
+		return memo;
+	}
+
+	/**
+	 * @return the commentMode
+	 */
+	public CommentMode getCommentMode() {
+		return commentMode;
+	}
+
 	/**
 	 * @return the configOrigin
 	 */
@@ -109,30 +253,406 @@ public class YamlConfigObjConverter {
 	public ConfigValue getConfValue() {
 		if (this.confValue == null) {
 			List<Node> rootNodes = getRootNodes();
-			if (rootNodes.size() == 1) {
-				this.confValue = convert(rootNodes.get(0));
-			} else if (rootNodes.size() > 1) {
-				List<ConfigValue> configValues = rootNodes.stream().map(node -> (ConfigValue) convert(node))
+			IncludeResolver.prefetch(getIncludeContext(), findIncludes(rootNodes));
+			if (memo != null) {
+				memo.begin();
+				live = new HashSet<YamlConversionMemo.Hash>();
+				hashes = hashAll(rootNodes, live);
+			}
+			List<ConfigValue> configValues;
+			if (isParallel() && rootNodes.size() > 1) {
+				IncludeResolver includes = IncludeResolver.fork();
+				configValues = rootNodes.parallelStream()
+						.map(node -> IncludeResolver.<ConfigValue>within(includes, () -> convert(node)))
+						.collect(Collectors.toList());
+			} else {
+				configValues = rootNodes.stream().map(node -> (ConfigValue) convert(node))
 						.collect(Collectors.toList());
-				ConfigList asConfigList = ConfigValueFactory.fromIterable(configValues).withOrigin(getConfigOrigin());
-				this.confValue = ConfigFactory.empty().withValue(MULTI_DOC_KEY, asConfigList).root();
+			}
+			this.confValue = toDocumentsValue(getConfigOrigin(), configValues);
+			if (memo != null) {
+				memo.commit(live);
+				hashes = null;
+				live = null;
 			}
 		}
 		return confValue;
 	}
 
-	@SuppressWarnings("unchecked")
+	/**
+	 * @return the value of every {@code !include} scalar in {@code nodes}, in
+	 *         document order
+	 */
+	private static List<String> findIncludes(List<Node> nodes) {
+		List<String> includes = new ArrayList<String>(0);
+		Map<Node, Boolean> visited = new IdentityHashMap<Node, Boolean>();
+		Deque<Node> toVisit = new ArrayDeque<Node>(nodes);
+		while (!toVisit.isEmpty()) {
+			Node node = toVisit.pollFirst();
+			if (node == null || visited.put(node, Boolean.TRUE) != null) {
+				continue;
+			}
+			if (node instanceof ScalarNode) {
+				if (IncludeTagProcessor.TAG.equals(node.getTag())) {
+					includes.add(((ScalarNode) node).getValue());
+				}
+			} else if (node instanceof SequenceNode) {
+				List<Node> children = ((SequenceNode) node).getValue();
+				for (int i = children.size() - 1; i > -1; i--) {
+					toVisit.addFirst(children.get(i));
+				}
+			} else if (node instanceof MappingNode) {
+				List<NodeTuple> tuples = ((MappingNode) node).getValue();
+				for (int i = tuples.size() - 1; i > -1; i--) {
+					toVisit.addFirst(tuples.get(i).getValueNode());
+				}
+			}
+		}
+		return includes;
+	}
+
+	/**
+	 * 
+	 * @param origin the origin of the yaml stream
+	 * @param documents the converted root value of each document in the stream
+	 * @return the value of the only document if there is just one, otherwise an
+	 *         object that holds every document in a {@link ConfigList} under
+	 *         {@link YAML_CONF#MULTI_DOC_KEY}
+	 */
+	static ConfigValue toDocumentsValue(ConfigOrigin origin, List<ConfigValue> documents) {
+		if (documents.size() == 1) {
+			return documents.get(0);
+		} else if (documents.size() > 1) {
+			ConfigList asConfigList = ConfigValueFactory.fromIterable(documents).withOrigin(origin);
+			return ConfigFactory.empty().withValue(MULTI_DOC_KEY, asConfigList).root();
+		}
+		return null;
+	}
+
 	protected <T extends ConfigValue> T convert(Node node) {
+		return convert(node, null);
+	}
+
+	/**
+	 * 
+	 * @param node the node to convert
+	 * @param keyNode the key {@code node} is mapped to, or {@code null} if
+	 *                {@code node} is not the value of a mapping entry
+	 * @return the converted value
+	 */
+	protected <T extends ConfigValue> T convert(Node node, Node keyNode) {
+		if (node == null) {
+			return null;
+		}
+		if (node.getAnchor() != null) {
+			return convertAnchored(node, keyNode);
+		}
+		if (hashes != null && !(node instanceof ScalarNode)) {
+			return convertReusing(node, keyNode);
+		}
+		return convertCounted(node, keyNode);
+	}
+
+	/**
+	 * Reuses the value the memo has for {@code node} if a node with the same
+	 * content was converted last time, moving the line numbers of its origins by
+	 * as many lines as the node moved, otherwise converts it. Either way the
+	 * value is recorded for the next conversion.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T extends ConfigValue> T convertReusing(Node node, Node keyNode) {
+		YamlConversionMemo.Hash hash = hashes.get(node);
+		if (hash == null) {
+			return convertCounted(node, keyNode);
+		}
+		YamlConversionMemo.Hash key = memoKey(hash, keyNode);
+		int line = node.getStartMark().getLine();
+		YamlConversionMemo.Entry previous = memo.previous(key);
+		if (previous != null) {
+			ConfigValue moved = ConfigImplementationsAccessor.withLineOffset(previous.value, line - previous.line);
+			if (moved != null) {
+				memo.put(key, line, moved);
+				memo.reused();
+				return (T) moved;
+			}
+		}
+		T converted = convertCounted(node, keyNode);
+		memo.put(key, line, converted);
+		return converted;
+	}
+
+	/**
+	 * @return the key the value of {@code node} is recorded under, the comments
+	 *         of {@code keyNode} end up in its origin too
+	 */
+	private YamlConversionMemo.Hash memoKey(YamlConversionMemo.Hash hash, Node keyNode) {
+		Hasher hasher = new Hasher();
+		hasher.add(hash);
+		hasher.add(getConfigOrigin() != null ? getConfigOrigin().description() : "");
+		if (keyNode != null && getCommentMode().processesComments()) {
+			addComments(hasher, keyNode);
+		}
+		return hasher.finish();
+	}
+
+	/**
+	 * Hashes the content of every node under {@code nodes} that can be reused,
+	 * nodes that {@code !include} something, directly or below them, or that
+	 * contain themselves are left out. A node's line is not part of its hash
+	 * but the lines of its children relative to it are, so a subtree that moved
+	 * as a whole keeps its hash.
+	 *
+	 * @param live gets the memo key of every subtree that can be reused
+	 */
+	private Map<Node, YamlConversionMemo.Hash> hashAll(List<Node> nodes, Set<YamlConversionMemo.Hash> live) {
+		Map<Node, YamlConversionMemo.Hash> hashes = new IdentityHashMap<Node, YamlConversionMemo.Hash>();
+		Map<Node, Boolean> entered = new IdentityHashMap<Node, Boolean>();
+		Set<Node> unhashable = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+		Deque<Node> toVisit = new ArrayDeque<Node>(nodes);
+		while (!toVisit.isEmpty()) {
+			Node node = toVisit.peekFirst();
+			if (node == null || hashes.containsKey(node) || unhashable.contains(node)) {
+				toVisit.pollFirst();
+				continue;
+			}
+			List<Node> children = childrenOf(node);
+			if (entered.put(node, Boolean.TRUE) == null) {
+				for (Node child : children) {
+					if (!entered.containsKey(child)) {
+						toVisit.addFirst(child);
+					}
+				}
+				continue;
+			}
+			toVisit.pollFirst();
+			Hasher hasher = new Hasher();
+			hasher.add(node.getNodeId().ordinal());
+			hasher.add(node.getTag().getValue());
+			addComments(hasher, node);
+			if (node instanceof ScalarNode) {
+				ScalarNode scalar = (ScalarNode) node;
+				if (IncludeTagProcessor.TAG.equals(node.getTag())) {
+					unhashable.add(node);
+					continue;
+				}
+				hasher.add(scalar.getValue());
+				hasher.add(scalar.getScalarStyle().ordinal());
+			}
+			hasher.add(children.size());
+			int line = node.getStartMark().getLine();
+			boolean hashable = true;
+			for (Node child : children) {
+				YamlConversionMemo.Hash childHash = hashes.get(child);
+				if (childHash == null) {
+					hashable = false;
+					break;
+				}
+				hasher.add(childHash);
+				hasher.add(child.getStartMark().getLine() - line);
+			}
+			if (hashable) {
+				hashes.put(node, hasher.finish());
+				addLiveChildren(node, hashes, live);
+			} else {
+				unhashable.add(node);
+			}
+		}
+		for (Node node : nodes) {
+			addLive(node, null, hashes, live);
+		}
+		return hashes;
+	}
+
+	/**
+	 * Adds the memo keys of the children of {@code node} that are reused as a
+	 * whole, with the key node each of them is converted with
+	 */
+	private void addLiveChildren(Node node, Map<Node, YamlConversionMemo.Hash> hashes,
+			Set<YamlConversionMemo.Hash> live) {
+		if (node instanceof SequenceNode) {
+			for (Node child : ((SequenceNode) node).getValue()) {
+				addLive(child, null, hashes, live);
+			}
+		} else if (node instanceof MappingNode) {
+			for (NodeTuple tuple : ((MappingNode) node).getValue()) {
+				Node keyNode = tuple.getKeyNode();
+				addLive(tuple.getValueNode(), Tag.MERGE.equals(keyNode.getTag()) ? null : keyNode, hashes, live);
+			}
+		}
+	}
+
+	private void addLive(Node node, Node keyNode, Map<Node, YamlConversionMemo.Hash> hashes,
+			Set<YamlConversionMemo.Hash> live) {
+		if (node != null && !(node instanceof ScalarNode) && node.getAnchor() == null) {
+			YamlConversionMemo.Hash hash = hashes.get(node);
+			if (hash != null) {
+				live.add(memoKey(hash, keyNode));
+			}
+		}
+	}
+
+	private static List<Node> childrenOf(Node node) {
+		if (node instanceof SequenceNode) {
+			return ((SequenceNode) node).getValue();
+		} else if (node instanceof MappingNode) {
+			List<NodeTuple> tuples = ((MappingNode) node).getValue();
+			List<Node> children = new ArrayList<Node>(tuples.size() << 1);
+			for (int i = 0; i < tuples.size(); i++) {
+				children.add(tuples.get(i).getKeyNode());
+				children.add(tuples.get(i).getValueNode());
+			}
+			return children;
+		}
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Adds the comments that end up in the origin of {@code node} to
+	 * {@code hasher}
+	 */
+	private void addComments(Hasher hasher, Node node) {
+		if (getCommentMode().processesComments()) {
+			addCommentLines(hasher, node.getBlockComments());
+			addCommentLines(hasher, node.getInLineComments());
+		} else if (CommentMode.SCAN.equals(getCommentMode())) {
+			for (Comment comment : getCommentAssociatedWithNode(node)) {
+				List<String> lines = comment.getLines();
+				hasher.add(lines.size());
+				for (int i = 0; i < lines.size(); i++) {
+					hasher.add(lines.get(i));
+				}
+			}
+		}
+	}
+
+	private static void addCommentLines(Hasher hasher, List<CommentLine> commentLines) {
+		if (commentLines != null) {
+			for (int i = 0; i < commentLines.size(); i++) {
+				CommentLine commentLine = commentLines.get(i);
+				if (!CommentType.BLANK_LINE.equals(commentLine.getCommentType())) {
+					hasher.add(commentLine.getValue());
+				}
+			}
+		}
+		hasher.add(-1);
+	}
+
+	/**
+	 * Builds a {@link YamlConversionMemo.Hash}, each half is mixed with its own
+	 * constants so a collision has to happen in both at once
+	 */
+	private static final class Hasher {
+		private long high = 0x6a09e667f3bcc908L;
+		private long low = 0xbb67ae8584caa73bL;
+
+		void add(long value) {
+			high = (high ^ value) * 0x9e3779b97f4a7c15L;
+			high ^= high >>> 29;
+			low = (low ^ value) * 0xc2b2ae3d27d4eb4fL;
+			low ^= low >>> 31;
+		}
+
+		void add(CharSequence chars) {
+			add(chars.length());
+			for (int i = 0; i < chars.length(); i++) {
+				add(chars.charAt(i));
+			}
+		}
+
+		void add(YamlConversionMemo.Hash hash) {
+			high = (high ^ hash.high) * 0x9e3779b97f4a7c15L;
+			high ^= high >>> 29;
+			low = (low ^ hash.low) * 0xc2b2ae3d27d4eb4fL;
+			low ^= low >>> 31;
+		}
+
+		YamlConversionMemo.Hash finish() {
+			return new YamlConversionMemo.Hash(high, low);
+		}
+	}
+
+	/**
+	 * Anchored nodes are shared by every alias that refers to them, so they are
+	 * converted once and the same (immutable) value is handed to every alias.
+	 * The first thread to reach an anchored node converts it, any other thread
+	 * that reaches it in the meantime waits for that conversion.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T extends ConfigValue> T convertAnchored(Node node, Node keyNode) {
+		CompletableFuture<ConfigValue> anchored = new CompletableFuture<ConfigValue>();
+		CompletableFuture<ConfigValue> previous = anchoredValues.putIfAbsent(node, anchored);
+		ConfigValue converted;
+		if (previous == null) {
+			Set<Node> converting = convertingAnchors.get();
+			converting.add(node);
+			try {
+				converted = convertCounted(node, null);
+				anchored.complete(converted);
+			} catch (RuntimeException | Error e) {
+				anchored.completeExceptionally(e);
+				throw e;
+			} finally {
+				converting.remove(node);
+			}
+		} else {
+			ConfigOrigin origin = getConfigOrigin().withLineNumber(node.getStartMark().getLine());
+			if (!previous.isDone() && convertingAnchors.get().contains(node)) {
+				throw new ConfigException.Parse(origin, "found recursive alias " + node.getAnchor());
+			}
+			converted = join(previous);
+			if (!(node instanceof ScalarNode)) {
+				budget.alias(origin);
+			}
+		}
+		if (converted != null && hasComments(keyNode)) {
+			converted = applyOrigin(node, keyNode, converted);
+		}
+		return (T) converted;
+	}
+
+	private static ConfigValue join(CompletableFuture<ConfigValue> anchored) {
+		try {
+			return anchored.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	private boolean hasComments(Node keyNode) {
+		return keyNode != null && getCommentMode().processesComments()
+				&& ((keyNode.getBlockComments() != null && !keyNode.getBlockComments().isEmpty())
+						|| (keyNode.getInLineComments() != null && !keyNode.getInLineComments().isEmpty()));
+	}
+
+	private <T extends ConfigValue> T convertCounted(Node node, Node keyNode) {
+		ConfigOrigin origin = getConfigOrigin().withLineNumber(node.getStartMark().getLine());
+		if (node instanceof ScalarNode) {
+			budget.count(origin);
+			return convertWithinBudget(node, keyNode);
+		}
+		budget.enter(origin);
+		try {
+			return convertWithinBudget(node, keyNode);
+		} finally {
+			budget.exit();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T extends ConfigValue> T convertWithinBudget(Node node, Node keyNode) {
 		T val = null;
 		if (node instanceof MappingNode) {
-			val = (T) convert((MappingNode) node);
+			return (T) convert((MappingNode) node, createOrigin(node, keyNode));
 		} else if (node instanceof SequenceNode) {
 			val = (T) convert((SequenceNode) node);
 		} else if (node instanceof ScalarNode) {
 			val = (T) convert((ScalarNode) node);
 		}
 		if (val != null) {
-			val = applyOrigin(node, val);
+			val = applyOrigin(node, keyNode, val);
 		}
 		return val;
 	}
@@ -142,19 +662,64 @@ public class YamlConfigObjConverter {
 	}
 
 	private ConfigOrigin createOrigin(Node n) {
-		List<Comment> associatedComments = getCommentAssociatedWithNode(n);
+		return createOrigin(n, null);
+	}
+
+	private ConfigOrigin createOrigin(Node n, Node keyNode) {
 		ConfigOrigin co = getConfigOrigin().withLineNumber(n.getStartMark().getLine());
-		if (associatedComments != null && !associatedComments.isEmpty()) {
-			List<String> commentLines = associatedComments.stream()
-					.flatMap(associatedComment -> associatedComment.getLines().stream()).collect(Collectors.toList());
+		List<String> commentLines = getCommentLines(n, keyNode);
+		if (!commentLines.isEmpty()) {
 			co = co.withComments(commentLines);
 		}
 		return co;
 	}
 
-	@SuppressWarnings("unchecked")
+	protected List<String> getCommentLines(Node n, Node keyNode) {
+		if (CommentMode.NONE.equals(getCommentMode())) {
+			return Collections.emptyList();
+		}
+		if (getCommentMode().processesComments()) {
+			List<CommentLine> commentLines = new ArrayList<CommentLine>(0);
+			if (keyNode != null) {
+				addCommentLines(commentLines, keyNode.getBlockComments());
+				addCommentLines(commentLines, keyNode.getInLineComments());
+			}
+			addCommentLines(commentLines, n.getBlockComments());
+			addCommentLines(commentLines, n.getInLineComments());
+			if (commentLines.isEmpty()) {
+				return Collections.emptyList();
+			}
+			if (CommentMode.LAZY.equals(getCommentMode())) {
+				return LazyCommentLines.of(this.source, commentLines);
+			}
+			return commentLines.stream().map(CommentLine::getValue).collect(Collectors.toList());
+		}
+		List<Comment> associatedComments = getCommentAssociatedWithNode(n);
+		if (associatedComments == null || associatedComments.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return associatedComments.stream().flatMap(associatedComment -> associatedComment.getLines().stream())
+				.collect(Collectors.toList());
+	}
+
+	private static void addCommentLines(List<CommentLine> commentLines, List<CommentLine> toAdd) {
+		if (toAdd != null) {
+			for (int i = 0; i < toAdd.size(); i++) {
+				CommentLine commentLine = toAdd.get(i);
+				if (!CommentType.BLANK_LINE.equals(commentLine.getCommentType())) {
+					commentLines.add(commentLine);
+				}
+			}
+		}
+	}
+
 	protected <T extends ConfigValue> T applyOrigin(Node n, T cv) {
-		ConfigOrigin co = createOrigin(n);
+		return applyOrigin(n, null, cv);
+	}
+
+	@SuppressWarnings("unchecked")
+	protected <T extends ConfigValue> T applyOrigin(Node n, Node keyNode, T cv) {
+		ConfigOrigin co = createOrigin(n, keyNode);
 		cv = (T) cv.withOrigin(co);
 		return cv;
 	}
@@ -171,19 +736,61 @@ public class YamlConfigObjConverter {
 
 	private Map<String, ConfigValue> toMap(List<NodeTuple> tuples){
 		Map<String,ConfigValue> asMap = new LinkedHashMap<String,ConfigValue>(tuples.size());
+		Map<String,ConfigValue> merged = null;
+		ConfigValue[] values = shouldFork(tuples.size()) ? convertValues(tuples) : null;
 		for(int i=0;i<tuples.size();i++) {
 			NodeTuple tuple = tuples.get(i);
-			String key = ((ScalarNode)tuple.getKeyNode()).getValue();
-			ConfigValue value = convert(tuple.getValueNode());
+			Node keyNode = tuple.getKeyNode();
+			if(Tag.MERGE.equals(keyNode.getTag())) {
+				if(merged==null) {
+					merged = new LinkedHashMap<String,ConfigValue>();
+				}
+				addMergedEntries(merged, values!=null?values[i]:convert(tuple.getValueNode()), getConfigOrigin().withLineNumber(keyNode.getStartMark().getLine()));
+				continue;
+			}
+			String key = ((ScalarNode)keyNode).getValue();
+			ConfigValue value = values!=null?values[i]:convert(tuple.getValueNode(), keyNode);
 			asMap.put(key, value);
 		}
-		asMap=toNormalizedMap(asMap);
+		asMap=toNormalizedMap(asMap, getConfigOrigin(), getLimits());
+		if(merged!=null) {
+			merged.putAll(asMap);
+			asMap=merged;
+		}
 		return asMap;
 	}
+
+	/**
+	 * Adds the entries of a {@code <<} merge key's value to {@code merged}
+	 * without replacing any key that is already there, so earlier merges win
+	 * over later ones. The values themselves are shared, not copied.
+	 * 
+	 * @param merged the entries merged so far
+	 * @param toMerge the converted value of the merge key, either an object or a
+	 *                list of objects
+	 * @param origin the origin of the merge key, used for errors
+	 */
+	static void addMergedEntries(Map<String, ConfigValue> merged, ConfigValue toMerge, ConfigOrigin origin) {
+		if (toMerge instanceof ConfigObject) {
+			ConfigObject asObject = (ConfigObject) toMerge;
+			for (String key : asObject.keySet()) {
+				merged.putIfAbsent(key, asObject.get(key));
+			}
+		} else if (toMerge instanceof ConfigList) {
+			for (ConfigValue item : (ConfigList) toMerge) {
+				if (!(item instanceof ConfigObject)) {
+					throw new ConfigException.Parse(origin, "the values of a << merge key sequence must be mappings");
+				}
+				addMergedEntries(merged, item, origin);
+			}
+		} else {
+			throw new ConfigException.Parse(origin, "a << merge key must refer to a mapping or a sequence of mappings");
+		}
+	}
 	
-	private static Map<String, ConfigValue> toNormalizedMap(Map<String,ConfigValue> nonNormalizedMap){
+	static Map<String, ConfigValue> toNormalizedMap(Map<String,ConfigValue> nonNormalizedMap, ConfigOrigin origin, YamlParseLimits limits){
 		Map<String,Object> normalized = new LinkedHashMap<String,Object>(nonNormalizedMap.size());
-		Map<String,List<ConfigValue>> arrayIndexedMap = getArrayIndexedNodesMapAsListMap(nonNormalizedMap);
+		Map<String,List<ConfigValue>> arrayIndexedMap = getArrayIndexedNodesMapAsListMap(nonNormalizedMap, origin, limits);
 		List<String> keys = new ArrayList<String>(nonNormalizedMap.keySet());
 		for(String key : keys) {
 			Object value = nonNormalizedMap.remove(key);
@@ -216,8 +823,8 @@ public class YamlConfigObjConverter {
 		return resultMap;
 	}
 	
-	private static Map<String, List<ConfigValue>> getArrayIndexedNodesMapAsListMap(Map<String,ConfigValue> tuples) {
-		Map<String, Integer> maxNodeMap = getDecArrayWithMaxVal(tuples);
+	private static Map<String, List<ConfigValue>> getArrayIndexedNodesMapAsListMap(Map<String,ConfigValue> tuples, ConfigOrigin origin, YamlParseLimits limits) {
+		Map<String, Integer> maxNodeMap = getDecArrayWithMaxVal(tuples, origin, limits);
 		Map<String, List<ConfigValue>> listedNodeMap = new LinkedHashMap<String, List<ConfigValue>>(maxNodeMap.size());
 		for (String nodeName : maxNodeMap.keySet()) {
 			Integer size = maxNodeMap.get(nodeName);
@@ -234,13 +841,19 @@ public class YamlConfigObjConverter {
 		}
 		return list;
 	}
-	private static Map<String, Integer> getDecArrayWithMaxVal(Map<String,?> nonNormalizedMap){
+	private static Map<String, Integer> getDecArrayWithMaxVal(Map<String,?> nonNormalizedMap, ConfigOrigin origin, YamlParseLimits limits){
 		Map<String, Integer> reso = new LinkedHashMap<String, Integer>();
 		for (String key : nonNormalizedMap.keySet()) {
 			Matcher m = ARRAY_ENTRY_PATTERN.matcher(key);
 			if (m.matches()) {
 				String mapKey = m.group(1);
-				int index = Integer.parseInt(m.group(2))+1;
+				String digits = m.group(2);
+				long declaredIndex = digits.length() > 18 ? Long.MAX_VALUE : Long.parseLong(digits);
+				limits.checkArrayIndex(origin, key, declaredIndex);
+				if (declaredIndex >= Integer.MAX_VALUE) {
+					throw new ConfigException.Parse(origin, "array index " + digits + " of " + key + " is too large");
+				}
+				int index = (int) declaredIndex + 1;
 				Integer existing = reso.get(mapKey);
 				if (existing == null) {
 					existing = index;
@@ -265,15 +878,11 @@ public class YamlConfigObjConverter {
 
 	protected List<Comment> getCommentForNode(Node n) {
 		List<Comment> comments = new ArrayList<Comment>(2);
-		Comment prefixed = getComments().stream()
-				.filter(comment -> comment.getLineOfFirstNonWhiteSpaceChar() == n.getStartMark().getLine()).findFirst()
-				.orElse(null);
+		Comment prefixed = this.commentIndex.getPrefixed(n.getStartMark().getLine());
 		if (prefixed != null) {
 			comments.add(prefixed);
 		}
-		Comment inline = getComments().stream()
-				.filter(comment -> comment.getLineNo() == n.getEndMark().getLine() && comment.isInline()).findFirst()
-				.orElse(null);
+		Comment inline = this.commentIndex.getInline(n.getEndMark().getLine());
 		if (inline != null) {
 			comments.add(inline);
 		}
@@ -281,7 +890,10 @@ public class YamlConfigObjConverter {
 	}
 
 	protected ConfigObject convert(MappingNode node) {
-		ConfigOrigin origin = createOrigin(node);
+		return convert(node, createOrigin(node));
+	}
+
+	protected ConfigObject convert(MappingNode node, ConfigOrigin origin) {
 		Iterable<Entry<String, ConfigValue>> asIterable = convert(node.getValue());
 		ConfigObject co = ConfigImplementationsAccessor.toSimpleConfigObject(origin, asIterable);
 		return co;
@@ -289,6 +901,9 @@ public class YamlConfigObjConverter {
 
 	protected ConfigList convert(SequenceNode node) {
 		List<Node> nodes = node.getValue();
+		if (shouldFork(nodes.size())) {
+			return ConfigValueFactory.fromIterable(Arrays.asList(convertAll(nodes)));
+		}
 		List<ConfigValue> asValues = new ArrayList<ConfigValue>(nodes.size());
 		for (int i = 0; i < nodes.size(); i++) {
 			Node n = nodes.get(i);
@@ -298,6 +913,101 @@ public class YamlConfigObjConverter {
 		return ConfigValueFactory.fromIterable(asValues);
 	}
 
+	private boolean shouldFork(int size) {
+		return forkThreshold > 0 && size >= forkThreshold;
+	}
+
+	/**
+	 * Converts the values of {@code tuples} on the fork-join pool
+	 * 
+	 * @return the converted values, in the same order as {@code tuples}
+	 */
+	private ConfigValue[] convertValues(List<NodeTuple> tuples) {
+		List<Node> values = new ArrayList<Node>(tuples.size());
+		List<Node> keys = new ArrayList<Node>(tuples.size());
+		for (int i = 0; i < tuples.size(); i++) {
+			NodeTuple tuple = tuples.get(i);
+			boolean isMerge = Tag.MERGE.equals(tuple.getKeyNode().getTag());
+			values.add(tuple.getValueNode());
+			keys.add(isMerge ? null : tuple.getKeyNode());
+		}
+		return convertAll(values, keys);
+	}
+
+	private ConfigValue[] convertAll(List<Node> values) {
+		return convertAll(values, Collections.nCopies(values.size(), null));
+	}
+
+	private ConfigValue[] convertAll(List<Node> values, List<Node> keys) {
+		ConfigValue[] converted = new ConfigValue[values.size()];
+		ConvertTask task = new ConvertTask(values, keys, converted, 0, values.size(), budget.getDepth(),
+				new ArrayList<Node>(convertingAnchors.get()), IncludeResolver.fork());
+		if (ForkJoinTask.inForkJoinPool()) {
+			task.invoke();
+		} else {
+			ForkJoinPool.commonPool().invoke(task);
+		}
+		return converted;
+	}
+
+	/**
+	 * Converts a range of sibling nodes, splitting the range in half and forking
+	 * until it is small enough to convert on one thread
+	 */
+	private class ConvertTask extends RecursiveAction {
+		private static final long serialVersionUID = -3079561838233725187L;
+		private final List<Node> values;
+		private final List<Node> keys;
+		private final ConfigValue[] converted;
+		private final int from;
+		private final int to;
+		private final int depth;
+		private final List<Node> anchors;
+		private final IncludeResolver includes;
+
+		/**
+		 * @param anchors  the anchored nodes the forking thread is in the middle
+		 *                 of converting
+		 * @param includes the snapshot of the forking thread's load, see
+		 *                 {@link IncludeResolver#fork()}
+		 */
+		ConvertTask(List<Node> values, List<Node> keys, ConfigValue[] converted, int from, int to, int depth,
+				List<Node> anchors, IncludeResolver includes) {
+			this.values = values;
+			this.keys = keys;
+			this.converted = converted;
+			this.from = from;
+			this.to = to;
+			this.depth = depth;
+			this.anchors = anchors;
+			this.includes = includes;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > Math.max(forkThreshold >> 1, 1)) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new ConvertTask(values, keys, converted, from, middle, depth, anchors, includes),
+						new ConvertTask(values, keys, converted, middle, to, depth, anchors, includes));
+				return;
+			}
+			Set<Node> previous = convertingAnchors.get();
+			Set<Node> converting = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+			converting.addAll(anchors);
+			convertingAnchors.set(converting);
+			try {
+				IncludeResolver.within(includes, () -> budget.atDepth(depth, () -> {
+					for (int i = from; i < to; i++) {
+						converted[i] = convert(values.get(i), keys.get(i));
+					}
+					return null;
+				}));
+			} finally {
+				convertingAnchors.set(previous);
+			}
+		}
+	}
+
 	protected ConfigValue convert(ScalarNode node) {
 		return TagProcessorService.getInstance().getConfigValue(this.configOrigin,node, this.includeContext);
 	}
@@ -314,11 +1024,38 @@ public class YamlConfigObjConverter {
 	}
 
 	public static List<Node> getRootNodes(Reader reader) {
-		Yaml y = new Yaml();
-		Iterable<Node> nodes = reader != null ? y.composeAll(reader) : Collections.emptyList();
+		return getRootNodes(reader, false);
+	}
+
+	/**
+	 * 
+	 * @param reader the yaml source
+	 * @param processComments if {@code true} snakeyaml will attach the comments it encounters to the composed nodes
+	 * @return the root node of every document in {@code reader}
+	 */
+	public static List<Node> getRootNodes(Reader reader, boolean processComments) {
+		return getRootNodes(reader, processComments, YamlParseLimits.getDefault());
+	}
+
+	public static List<Node> getRootNodes(Reader reader, boolean processComments, YamlParseLimits limits) {
+		Iterable<Node> nodes = composeAll(reader, processComments, limits);
 		return new ArrayList<Node>(StreamSupport.stream(nodes.spliterator(), false).collect(Collectors.toList()));
 	}
 
+	/**
+	 * 
+	 * @param reader the yaml source
+	 * @param processComments if {@code true} snakeyaml will attach the comments it encounters to the composed nodes
+	 * @param limits the alias and nesting limits snakeyaml should enforce while composing
+	 * @return an {@link Iterable} that composes the root node of each document in {@code reader} as it is iterated
+	 */
+	static Iterable<Node> composeAll(Reader reader, boolean processComments, YamlParseLimits limits) {
+		LoaderOptions loaderOptions = (limits != null ? limits : YamlParseLimits.getDefault())
+				.toLoaderOptions(processComments);
+		Yaml y = new Yaml(loaderOptions);
+		return reader != null ? y.composeAll(reader) : Collections.emptyList();
+	}
+
 	private static class ConfigTuple implements Serializable, Entry<String, ConfigValue> {
 		/**
 		 * 
@@ -2,13 +2,22 @@ package com.jamesratzlaff.typesafe;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
 
+import com.jamesratzlaff.typesafe.YamlSnapshotStore.YamlSnapshot;
+import com.jamesratzlaff.yaml.spi.impl.service.IncludeResolver;
+import com.typesafe.config.ConfigFactory;
 import com.typesafe.config.ConfigFormat;
 import com.typesafe.config.ConfigIncludeContext;
 import com.typesafe.config.ConfigOrigin;
+import com.typesafe.config.ConfigOriginFactory;
 import com.typesafe.config.ConfigParseOptions;
 import com.typesafe.config.ConfigValue;
 import com.typesafe.config.impl.AbstractConfigProvider;
+import com.typesafe.config.impl.ConfigImplementationsAccessor;
 import com.typesafe.config.impl.SimpleConfigFormat;
 
 public class YamlConfigProvider extends AbstractConfigProvider {
@@ -21,8 +30,131 @@ public class YamlConfigProvider extends AbstractConfigProvider {
 
 	public ConfigValue rawParseValue(Reader reader, ConfigOrigin origin, ConfigParseOptions finalOptions,
 			ConfigIncludeContext includeContext) throws IOException {
-		YamlConfigObjConverter converter = new YamlConfigObjConverter(origin, includeContext, reader);
-		return converter.getConfValue();
+		return rawParseValue(YamlParseCache.getInstance(), reader, origin, includeContext);
+	}
+
+	ConfigValue rawParseValue(YamlParseCache cache, Reader reader, ConfigOrigin origin,
+			ConfigIncludeContext includeContext) throws IOException {
+		URL url = origin != null ? origin.url() : null;
+		YamlParseCache.Key key = cache.keyFor(url, getCacheOptions());
+		IncludeResolver includes = IncludeResolver.begin(origin);
+		try {
+			YamlParseCache.Entry cached = cache.get(key);
+			if (cached != null) {
+				// the load still has to know what the cached value included
+				includes.addIncludes(origin, cached.getIncludes());
+				return cached.getValue();
+			}
+			// decode what typesafe config already opened rather than opening the file a second time
+			ConfigValue value = parseValue(YamlParseLimits.getDefault().read(origin, reader), origin, includeContext);
+			if (key != null) {
+				cache.put(key, value, includes.getIncludedBy(origin));
+			}
+			return value;
+		} finally {
+			includes.end();
+		}
+	}
+
+	/**
+	 * @return everything besides the source itself that changes what
+	 *         {@link #parseValue(YamlSource, ConfigOrigin, ConfigIncludeContext)}
+	 *         returns
+	 */
+	static Object getCacheOptions() {
+		return Arrays.asList(CommentMode.getDefault(), Boolean.getBoolean(YAML_CONF.STREAMING_PROPERTY),
+				YamlParseLimits.getDefault());
+	}
+
+	/**
+	 * Invalidates typesafe config's own caches, see
+	 * {@link ConfigFactory#invalidateCaches()}, along with the
+	 * {@link YamlParseCache}
+	 */
+	public static void invalidateCaches() {
+		ConfigFactory.invalidateCaches();
+		YamlParseCache.getInstance().invalidate();
+	}
+
+	/**
+	 * Converts {@code source}, any {@code !include}s in it are resolved as part of
+	 * the same load (see {@link IncludeResolver}). If enabled, an up to date
+	 * artifact from the {@link YamlPrecompiler} next to the source is used
+	 * instead, as is a snapshot of {@code source} if a {@link YamlSnapshotStore}
+	 * is configured.
+	 */
+	public ConfigValue parseValue(YamlSource source, ConfigOrigin origin, ConfigIncludeContext includeContext) {
+		return parseValue(source, origin, includeContext, null);
+	}
+
+	/**
+	 * Same as {@link #parseValue(YamlSource, ConfigOrigin, ConfigIncludeContext)}
+	 * but when {@code source} has to be converted, the values of mappings and
+	 * sequences that are unchanged since the last conversion recorded in
+	 * {@code memo} are reused instead of converted again
+	 *
+	 * @param memo the memo of the previous conversion of the same source, or
+	 *             {@code null}
+	 */
+	public ConfigValue parseValue(YamlSource source, ConfigOrigin origin, ConfigIncludeContext includeContext,
+			YamlConversionMemo memo) {
+		URL url = origin != null ? origin.url() : null;
+		IncludeResolver includes = IncludeResolver.begin(origin);
+		try {
+			YamlSnapshot precompiled = url != null && Boolean.getBoolean(YAML_CONF.PRECOMPILED_PROPERTY)
+					? YamlPrecompiler.read(url, source, origin)
+					: null;
+			if (precompiled != null) {
+				includes.addIncludes(origin, precompiled.getIncludes());
+				return precompiled.getValue();
+			}
+			YamlSnapshotStore snapshots = YamlSnapshotStore.getDefault();
+			String key = snapshots != null ? YamlSnapshotStore.keyFor(origin, source, getCacheOptions()) : null;
+			YamlSnapshot snapshot = key != null ? snapshots.read(key) : null;
+			if (snapshot != null) {
+				includes.addIncludes(origin, snapshot.getIncludes());
+				return snapshot.getValue();
+			}
+			ConfigValue value = convert(source, origin, includeContext, memo);
+			if (key != null && value != null) {
+				snapshots.write(key, value, includes.getIncludedBy(origin));
+			}
+			return value;
+		} finally {
+			includes.end();
+		}
+	}
+
+	private static ConfigValue convert(YamlSource source, ConfigOrigin origin, ConfigIncludeContext includeContext,
+			YamlConversionMemo memo) {
+		if (Boolean.getBoolean(YAML_CONF.STREAMING_PROPERTY)) {
+			return new YamlEventConverter(origin, includeContext, source).getConfValue();
+		}
+		YamlConfigObjConverter converter = new YamlConfigObjConverter(origin, includeContext, source);
+		return converter.reusing(memo).getConfValue();
+	}
+
+	/**
+	 * Parses a yaml file by memory mapping it rather than streaming it. The
+	 * mapping is only needed while the file is decoded, but like any mapping it
+	 * is not released until it is garbage collected.
+	 */
+	public static ConfigValue parse(Path path) throws IOException {
+		ConfigOrigin origin = ConfigOriginFactory.newFile(path.toString());
+		ConfigIncludeContext includeContext = ConfigImplementationsAccessor.newIncludeContext(path.toFile(),
+				ConfigParseOptions.defaults());
+		return new YamlConfigProvider().parseValue(YamlSource.of(path), origin, includeContext);
+	}
+
+	public static ConfigValue parse(byte[] bytes, String description) throws IOException {
+		return parse(bytes != null ? ByteBuffer.wrap(bytes) : ByteBuffer.allocate(0), description);
+	}
+
+	public static ConfigValue parse(ByteBuffer bytes, String description) throws IOException {
+		ConfigOrigin origin = ConfigOriginFactory.newSimple(description);
+		ConfigIncludeContext includeContext = ConfigImplementationsAccessor.newIncludeContext(description,
+				ConfigParseOptions.defaults());
+		return new YamlConfigProvider().parseValue(YamlSource.of(bytes), origin, includeContext);
 	}
 	
 	
@@ -0,0 +1,431 @@
+package com.jamesratzlaff.typesafe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.jamesratzlaff.yaml.spi.impl.service.IncludeResolver;
+import com.typesafe.config.ConfigException;
+import com.typesafe.config.ConfigIncludeContext;
+import com.typesafe.config.ConfigObject;
+import com.typesafe.config.ConfigOrigin;
+import com.typesafe.config.ConfigOriginFactory;
+import com.typesafe.config.ConfigParseOptions;
+import com.typesafe.config.ConfigValue;
+import com.typesafe.config.impl.ConfigImplementationsAccessor;
+
+/**
+ * Keeps the converted values of a set of yaml files up to date as the files,
+ * or anything they {@code !include}, change on disk. Readers call
+ * {@link #get()} (or {@link #get(Path)}) which never blocks and always returns
+ * a consistent snapshot, the snapshot is replaced as a whole after every
+ * reload.
+ * <p>
+ * Changes are picked up with a {@link WatchService} and debounced so a burst of
+ * writes causes a single reload. Only the files that depend on something that
+ * changed are parsed again, and includes that did not change are reused
+ * rather than parsed again. Within a file that is parsed again, mappings and
+ * sequences that did not change keep their previous values, see
+ * {@link YamlConversionMemo}. Files are compared by their real path, size and
+ * modification time, so a symlink that is atomically swapped to point at new
+ * content (the way mounted config directories are updated) is seen as a
+ * change.
+ *
+ * @author jamesratzlaff
+ *
+ */
+public class YamlConfigWatcher implements Closeable {
+	public static final long DEFAULT_DEBOUNCE_MILLIS = 200;
+
+	private final List<Path> roots;
+	private final long debounceMillis;
+	private final AtomicReference<Map<Path, ConfigValue>> snapshot;
+	private final List<Listener> listeners;
+	private final Map<Path, Load> loads;
+	private final Map<Path, Stamp> stamps;
+	private final Map<Path, WatchKey> watchedDirectories;
+	private WatchService watchService;
+	private Thread thread;
+
+	public YamlConfigWatcher(Path root, Path... roots) {
+		this(DEFAULT_DEBOUNCE_MILLIS, toList(root, roots));
+	}
+
+	public YamlConfigWatcher(long debounceMillis, Collection<Path> roots) {
+		Set<Path> unique = new LinkedHashSet<Path>();
+		for (Path root : roots) {
+			unique.add(root.toAbsolutePath().normalize());
+		}
+		this.roots = Collections.unmodifiableList(new ArrayList<Path>(unique));
+		this.debounceMillis = debounceMillis;
+		this.snapshot = new AtomicReference<Map<Path, ConfigValue>>(Collections.emptyMap());
+		this.listeners = new CopyOnWriteArrayList<Listener>();
+		this.loads = new HashMap<Path, Load>();
+		this.stamps = new HashMap<Path, Stamp>();
+		this.watchedDirectories = new HashMap<Path, WatchKey>();
+	}
+
+	private static List<Path> toList(Path root, Path... roots) {
+		List<Path> all = new ArrayList<Path>(roots.length + 1);
+		all.add(root);
+		Collections.addAll(all, roots);
+		return all;
+	}
+
+	/**
+	 * Loads every root and starts watching for changes
+	 *
+	 * @throws IOException if the files can't be watched
+	 */
+	public synchronized YamlConfigWatcher start() throws IOException {
+		if (thread != null) {
+			return this;
+		}
+		watchService = FileSystems.getDefault().newWatchService();
+		Map<Path, ConfigValue> values = new LinkedHashMap<Path, ConfigValue>();
+		for (Path root : roots) {
+			Load load = load(root, Collections.emptyMap(), Collections.emptyMap(), new YamlConversionMemo());
+			loads.put(root, load);
+			values.put(root, load.value);
+		}
+		watchFiles(Collections.emptyMap());
+		snapshot.set(Collections.unmodifiableMap(values));
+		thread = new Thread(this::run, "yaml-config-watcher");
+		thread.setDaemon(true);
+		thread.start();
+		return this;
+	}
+
+	/**
+	 * @return the converted value of every root, as of the last reload
+	 */
+	public Map<Path, ConfigValue> get() {
+		return snapshot.get();
+	}
+
+	/**
+	 * @return the converted value of {@code root}, as of the last reload
+	 */
+	public ConfigValue get(Path root) {
+		return snapshot.get().get(root.toAbsolutePath().normalize());
+	}
+
+	public void addListener(Listener listener) {
+		listeners.add(Objects.requireNonNull(listener));
+	}
+
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (thread != null) {
+			thread.interrupt();
+			thread = null;
+		}
+		if (watchService != null) {
+			watchService.close();
+			watchService = null;
+		}
+		watchedDirectories.clear();
+	}
+
+	private void run() {
+		WatchService service = watchService;
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				WatchKey key = service.take();
+				// wait for the burst of events to settle before looking at the files
+				do {
+					key.pollEvents();
+					key.reset();
+				} while ((key = service.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null);
+				reloadChanged();
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// closed
+		}
+	}
+
+	private synchronized void reloadChanged() {
+		if (watchService == null) {
+			// closed while the events were settling
+			return;
+		}
+		// stamped before anything is read, so a write during the reload is seen as
+		// a change by the next one
+		Map<Path, Stamp> observed = new HashMap<Path, Stamp>();
+		Set<Path> changed = new LinkedHashSet<Path>();
+		for (Map.Entry<Path, Stamp> entry : stamps.entrySet()) {
+			Stamp stamp = Stamp.of(entry.getKey());
+			observed.put(entry.getKey(), stamp);
+			if (!Objects.equals(entry.getValue(), stamp)) {
+				changed.add(entry.getKey());
+			}
+		}
+		if (changed.isEmpty()) {
+			return;
+		}
+		Map<Path, ConfigValue> values = new LinkedHashMap<Path, ConfigValue>(snapshot.get());
+		Set<Path> reloaded = new LinkedHashSet<Path>();
+		for (Path root : roots) {
+			Load previous = loads.get(root);
+			if (Collections.disjoint(previous.files, changed)) {
+				continue;
+			}
+			try {
+				Load load = load(root, previous.reusable(changed), previous.includeGraph, previous.memo);
+				loads.put(root, load);
+				values.put(root, load.value);
+				reloaded.add(root);
+			} catch (RuntimeException e) {
+				for (Listener listener : listeners) {
+					listener.reloadFailed(root, e);
+				}
+			}
+		}
+		watchFiles(observed);
+		if (!reloaded.isEmpty()) {
+			Map<Path, ConfigValue> current = Collections.unmodifiableMap(values);
+			snapshot.set(current);
+			for (Listener listener : listeners) {
+				listener.reloaded(Collections.unmodifiableSet(reloaded), current);
+			}
+		}
+	}
+
+	private static Load load(Path root, Map<String, ConfigObject> reusable, Map<String, Set<String>> includeGraph,
+			YamlConversionMemo memo) {
+		ConfigOrigin origin = ConfigOriginFactory.newFile(root.toString());
+		ConfigIncludeContext includeContext = ConfigImplementationsAccessor.newIncludeContext(root.toFile(),
+				ConfigParseOptions.defaults());
+		IncludeResolver includes = IncludeResolver.begin(origin);
+		try {
+			includes.reuse(reusable, includeGraph);
+			ConfigValue value = new YamlConfigProvider().parseValue(YamlSource.of(root), origin, includeContext, memo);
+			Set<Path> files = new LinkedHashSet<Path>();
+			files.add(root);
+			for (String included : includes.getIncludedBy(origin)) {
+				Path path = toPath(included);
+				if (path != null) {
+					files.add(path);
+				}
+			}
+			return new Load(value, includes.getIncludeGraph(), includes.getResolved(), files, memo);
+		} catch (IOException e) {
+			throw new ConfigException.IO(origin, "Could not read " + root, e);
+		} finally {
+			includes.end();
+		}
+	}
+
+	private static Path toPath(String resource) {
+		try {
+			URI uri = new URI(resource);
+			return "file".equalsIgnoreCase(uri.getScheme()) ? Paths.get(uri).toAbsolutePath().normalize() : null;
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Stamps every file the roots depend on and watches the directories they are
+	 * in, both where they are linked from and where they really are. Directories
+	 * that no file is in any more, such as the target of a swapped symlink, stop
+	 * being watched.
+	 *
+	 * @param observed the stamps of files taken before they were read, files
+	 *                 that aren't in it are stamped now
+	 */
+	private void watchFiles(Map<Path, Stamp> observed) {
+		Set<Path> files = new LinkedHashSet<Path>();
+		for (Load load : loads.values()) {
+			files.addAll(load.files);
+		}
+		stamps.keySet().retainAll(files);
+		Set<Path> directories = new HashSet<Path>();
+		for (Path file : files) {
+			Stamp stamp = observed.containsKey(file) ? observed.get(file) : Stamp.of(file);
+			stamps.put(file, stamp);
+			addParent(directories, file);
+			if (stamp != null) {
+				addParent(directories, stamp.realPath);
+			}
+		}
+		for (Iterator<Map.Entry<Path, WatchKey>> it = watchedDirectories.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<Path, WatchKey> entry = it.next();
+			if (!directories.contains(entry.getKey())) {
+				entry.getValue().cancel();
+				it.remove();
+			}
+		}
+		for (Path directory : directories) {
+			watchDirectory(directory);
+		}
+	}
+
+	private static void addParent(Set<Path> directories, Path file) {
+		Path parent = file.getParent();
+		if (parent != null) {
+			directories.add(parent);
+		}
+	}
+
+	private void watchDirectory(Path directory) {
+		WatchKey key = watchedDirectories.get(directory);
+		if (key == null || !key.isValid()) {
+			try {
+				watchedDirectories.put(directory, directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+						StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY));
+			} catch (IOException e) {
+				watchedDirectories.remove(directory);
+			}
+		}
+	}
+
+	/**
+	 * @return the directories being watched
+	 */
+	synchronized Set<Path> getWatchedDirectories() {
+		return Collections.unmodifiableSet(new HashSet<Path>(watchedDirectories.keySet()));
+	}
+
+	/**
+	 * Notified on the watcher's thread after a reload
+	 */
+	public interface Listener {
+		/**
+		 *
+		 * @param reloaded the roots that were reloaded
+		 * @param snapshot the new value of every root
+		 */
+		void reloaded(Set<Path> reloaded, Map<Path, ConfigValue> snapshot);
+
+		/**
+		 * Called when a root could not be reloaded, it keeps its previous value
+		 */
+		default void reloadFailed(Path root, RuntimeException cause) {
+		}
+	}
+
+	/**
+	 * The result of loading a root
+	 */
+	private static final class Load {
+		private final ConfigValue value;
+		private final Map<String, Set<String>> includeGraph;
+		private final Map<String, ConfigObject> resolved;
+		private final Set<Path> files;
+		private final YamlConversionMemo memo;
+
+		Load(ConfigValue value, Map<String, Set<String>> includeGraph, Map<String, ConfigObject> resolved,
+				Set<Path> files, YamlConversionMemo memo) {
+			this.value = value;
+			this.includeGraph = includeGraph;
+			this.resolved = resolved;
+			this.files = files;
+			this.memo = memo;
+		}
+
+		/**
+		 * @return the includes that neither changed nor include anything that
+		 *         changed
+		 */
+		Map<String, ConfigObject> reusable(Set<Path> changed) {
+			Map<String, Set<String>> includers = new HashMap<String, Set<String>>();
+			includeGraph.forEach((includer, included) -> included
+					.forEach(key -> includers.computeIfAbsent(key, k -> new HashSet<String>()).add(includer)));
+			Set<String> stale = new HashSet<String>();
+			Deque<String> toVisit = new ArrayDeque<String>();
+			for (String key : resolved.keySet()) {
+				if (changed.contains(toPath(key))) {
+					toVisit.add(key);
+				}
+			}
+			while (!toVisit.isEmpty()) {
+				String key = toVisit.pollFirst();
+				if (stale.add(key)) {
+					toVisit.addAll(includers.getOrDefault(key, Collections.emptySet()));
+				}
+			}
+			Map<String, ConfigObject> reusable = new LinkedHashMap<String, ConfigObject>(resolved);
+			reusable.keySet().removeAll(stale);
+			return reusable;
+		}
+	}
+
+	/**
+	 * What a file looked like the last time it was checked
+	 */
+	private static final class Stamp {
+		private final Path realPath;
+		private final long lastModified;
+		private final long size;
+
+		private Stamp(Path realPath, long lastModified, long size) {
+			this.realPath = realPath;
+			this.lastModified = lastModified;
+			this.size = size;
+		}
+
+		/**
+		 * @return the stamp of {@code file}, or {@code null} if it does not exist
+		 */
+		static Stamp of(Path file) {
+			try {
+				Path realPath = file.toRealPath();
+				BasicFileAttributes attributes = Files.readAttributes(realPath, BasicFileAttributes.class);
+				return new Stamp(realPath, attributes.lastModifiedTime().toMillis(), attributes.size());
+			} catch (IOException e) {
+				return null;
+			}
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(realPath, lastModified, size);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Stamp)) {
+				return false;
+			}
+			Stamp other = (Stamp) obj;
+			return lastModified == other.lastModified && size == other.size
+					&& Objects.equals(realPath, other.realPath);
+		}
+	}
+
+}
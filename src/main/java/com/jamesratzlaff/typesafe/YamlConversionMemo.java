@@ -0,0 +1,154 @@
+package com.jamesratzlaff.typesafe;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.typesafe.config.ConfigValue;
+
+/**
+ * Remembers the converted value of every mapping and sequence of the last
+ * conversion of a file so the next conversion of the same file can reuse the
+ * values of subtrees that have not changed. Subtrees are matched by a 128 bit
+ * hash of their content (including their comments and the lines their
+ * children are on relative to them, but not the line they start on), so a
+ * subtree that only moved is reused with the line numbers of its origins moved
+ * along with it. Subtrees that {@code !include} anything are always converted
+ * again.
+ * <p>
+ * Keep one memo per file and hand it to every conversion of that file, see
+ * {@link YamlConfigProvider#parseValue(YamlSource, com.typesafe.config.ConfigOrigin, com.typesafe.config.ConfigIncludeContext, YamlConversionMemo)}.
+ * A memo must not be used by two conversions at the same time. Only the hashes
+ * and converted values are kept, not the yaml they were converted from.
+ *
+ * @author jamesratzlaff
+ *
+ */
+public final class YamlConversionMemo {
+	private volatile Map<Hash, Entry> previous;
+	private final Map<Hash, Entry> current;
+	private final AtomicInteger reused;
+
+	public YamlConversionMemo() {
+		this.previous = Collections.emptyMap();
+		this.current = new ConcurrentHashMap<Hash, Entry>();
+		this.reused = new AtomicInteger();
+	}
+
+	/**
+	 * Called before a conversion starts
+	 */
+	void begin() {
+		current.clear();
+		reused.set(0);
+	}
+
+	/**
+	 * Called once a conversion has finished, what it recorded is what the next
+	 * conversion reuses
+	 *
+	 * @param live the key of every subtree of this conversion, the previous
+	 *             entries of those that weren't recorded because a subtree
+	 *             around them was reused are carried over
+	 */
+	void commit(Collection<Hash> live) {
+		Map<Hash, Entry> next = new HashMap<Hash, Entry>(current);
+		for (Hash key : live) {
+			if (!next.containsKey(key)) {
+				Entry entry = previous.get(key);
+				if (entry != null) {
+					next.put(key, entry);
+				}
+			}
+		}
+		previous = next;
+		current.clear();
+	}
+
+	/**
+	 * @return what the previous conversion recorded under {@code key}, or
+	 *         {@code null}
+	 */
+	Entry previous(Hash key) {
+		return previous.get(key);
+	}
+
+	void put(Hash key, int line, ConfigValue value) {
+		current.put(key, new Entry(line, value));
+	}
+
+	void reused() {
+		reused.incrementAndGet();
+	}
+
+	/**
+	 * @return the number of subtrees the last conversion reused rather than
+	 *         converted
+	 */
+	public int getReused() {
+		return reused.get();
+	}
+
+	/**
+	 * @return the number of subtrees recorded by the last conversion
+	 */
+	public int size() {
+		return previous.size();
+	}
+
+	/**
+	 * Forgets everything, the next conversion converts every subtree
+	 */
+	public void clear() {
+		previous = Collections.emptyMap();
+		current.clear();
+	}
+
+	/**
+	 * A converted value and the 0 based line the subtree it was converted from
+	 * started on
+	 */
+	static final class Entry {
+		final int line;
+		final ConfigValue value;
+
+		Entry(int line, ConfigValue value) {
+			this.line = line;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * A 128 bit content hash, kept as two independently mixed halves
+	 */
+	static final class Hash {
+		final long high;
+		final long low;
+
+		Hash(long high, long low) {
+			this.high = high;
+			this.low = low;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (high ^ (high >>> 32));
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Hash)) {
+				return false;
+			}
+			Hash other = (Hash) obj;
+			return high == other.high && low == other.low;
+		}
+	}
+
+}
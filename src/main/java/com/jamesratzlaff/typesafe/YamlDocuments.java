@@ -0,0 +1,179 @@
+package com.jamesratzlaff.typesafe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.yaml.snakeyaml.error.Mark;
+import org.yaml.snakeyaml.nodes.Node;
+
+import com.jamesratzlaff.typesafe.CommentReader.Comment;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigException;
+import com.typesafe.config.ConfigIncludeContext;
+import com.typesafe.config.ConfigObject;
+import com.typesafe.config.ConfigOrigin;
+import com.typesafe.config.ConfigValue;
+
+/**
+ * Gives access to the documents of a multi-doc yaml source one at a time. A
+ * document is only converted the first time it is asked for, and documents
+ * after the last one asked for are not parsed at all. Documents before it are
+ * composed (so the parser can find where the requested one starts) but are
+ * not converted until they are asked for. In {@link CommentMode#SCAN} the
+ * source is scanned for comments once, up to the end of the last document
+ * asked for.
+ * <p>
+ * This is meant for callers that know they only need a few documents out of
+ * a large stream, {@link YamlConfigProvider} still has to hand typesafe config
+ * a fully converted value.
+ *
+ * @author jamesratzlaff
+ *
+ */
+public class YamlDocuments {
+	private final ConfigOrigin configOrigin;
+	private final ConfigIncludeContext includeContext;
+	private final YamlSource source;
+	private final CommentMode commentMode;
+	private final YamlParseLimits limits;
+	private final Iterator<Node> remaining;
+	private final List<Node> composed;
+	private final List<ConfigValue> converted;
+	private final CommentReader.Scan commentScan;
+	private final List<List<Comment>> scannedComments;
+
+	public YamlDocuments(ConfigOrigin configOrigin, ConfigIncludeContext includeContext, YamlSource source) {
+		this(configOrigin, includeContext, source, CommentMode.getDefault());
+	}
+
+	public YamlDocuments(ConfigOrigin configOrigin, ConfigIncludeContext includeContext, YamlSource source,
+			CommentMode commentMode) {
+		this(configOrigin, includeContext, source, commentMode, YamlParseLimits.getDefault());
+	}
+
+	public YamlDocuments(ConfigOrigin configOrigin, ConfigIncludeContext includeContext, YamlSource source,
+			CommentMode commentMode, YamlParseLimits limits) {
+		this.configOrigin = configOrigin;
+		this.includeContext = includeContext;
+		this.source = source != null ? source : YamlSource.of("");
+		this.commentMode = commentMode != null ? commentMode : CommentMode.getDefault();
+		this.limits = limits != null ? limits : YamlParseLimits.getDefault();
+		this.limits.checkSize(configOrigin, this.source.length());
+		this.remaining = YamlConfigObjConverter
+				.composeAll(this.source.reader(), this.commentMode.processesComments(), this.limits).iterator();
+		this.composed = new ArrayList<Node>();
+		this.converted = new ArrayList<ConfigValue>();
+		this.commentScan = CommentMode.SCAN.equals(this.commentMode)
+				? new CommentReader.Scan(configOrigin != null ? configOrigin.url() : null,
+						this.source.lines().iterator(), null)
+				: null;
+		this.scannedComments = new ArrayList<List<Comment>>();
+	}
+
+	/**
+	 * @return the configOrigin
+	 */
+	public ConfigOrigin getConfigOrigin() {
+		return configOrigin;
+	}
+
+	/**
+	 * 
+	 * @param index the 0 based index of the document
+	 * @return the converted root value of the document
+	 * @throws IndexOutOfBoundsException if the source does not have that many
+	 *                                   documents
+	 */
+	public synchronized ConfigValue get(int index) {
+		if (index < 0 || !composeThrough(index)) {
+			throw new IndexOutOfBoundsException(
+					"document " + index + " does not exist in " + (configOrigin != null ? configOrigin.description() : "the source"));
+		}
+		ConfigValue value = converted.get(index);
+		if (value == null) {
+			Node node = composed.get(index);
+			YamlConfigObjConverter converter = new YamlConfigObjConverter(configOrigin, includeContext,
+					Collections.singletonList(node), commentsOf(index), source, commentMode, limits);
+			value = converter.getConfValue();
+			converted.set(index, value);
+			composed.set(index, null);
+			if (commentScan != null) {
+				scannedComments.set(index, null);
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * 
+	 * @param index the 0 based index of the document
+	 * @return the document as a {@link Config}
+	 * @throws ConfigException.WrongType if the root of the document is not a mapping
+	 */
+	public Config getConfig(int index) {
+		ConfigValue value = get(index);
+		if (value instanceof ConfigObject) {
+			return ((ConfigObject) value).toConfig();
+		}
+		throw new ConfigException.WrongType(value.origin(), "document " + index, "OBJECT", value.valueType().name());
+	}
+
+	/**
+	 * Note that this has to compose every document in the source
+	 * 
+	 * @return the number of documents in the source
+	 */
+	public synchronized int size() {
+		while (composeNext()) {
+			// keep composing until the end of the stream
+		}
+		return composed.size();
+	}
+
+	/**
+	 * Scans the documents up to and including {@code index} for comments if
+	 * they have not been scanned yet
+	 * 
+	 * @return the comments of the document at {@code index}, or an empty list if
+	 *         comments are not scanned for
+	 */
+	private List<Comment> commentsOf(int index) {
+		if (commentScan == null) {
+			return Collections.emptyList();
+		}
+		for (int i = scannedComments.size(); i <= index; i++) {
+			Node node = composed.get(i);
+			commentScan.addNodes(node);
+			scannedComments.add(commentScan.readThrough(lastLineOf(node)));
+		}
+		return scannedComments.get(index);
+	}
+
+	private static int lastLineOf(Node node) {
+		Mark end = node.getEndMark();
+		// a block collection ends at the start of the line after its last entry
+		return end.getColumn() == 0 ? end.getLine() - 1 : end.getLine();
+	}
+
+	private boolean composeThrough(int index) {
+		while (composed.size() <= index) {
+			if (!composeNext()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean composeNext() {
+		if (!remaining.hasNext()) {
+			return false;
+		}
+		composed.add(remaining.next());
+		converted.add(null);
+		return true;
+	}
+
+}
@@ -0,0 +1,413 @@
+package com.jamesratzlaff.typesafe;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.yaml.snakeyaml.comments.CommentLine;
+import org.yaml.snakeyaml.comments.CommentType;
+import org.yaml.snakeyaml.error.Mark;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.CollectionStartEvent;
+import org.yaml.snakeyaml.events.CommentEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.NodeEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.parser.Parser;
+import org.yaml.snakeyaml.parser.ParserImpl;
+import org.yaml.snakeyaml.reader.StreamReader;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import com.jamesratzlaff.yaml.spi.impl.service.TagProcessorService;
+import com.typesafe.config.ConfigException;
+import com.typesafe.config.ConfigIncludeContext;
+import com.typesafe.config.ConfigList;
+import com.typesafe.config.ConfigObject;
+import com.typesafe.config.ConfigOrigin;
+import com.typesafe.config.ConfigValue;
+import com.typesafe.config.ConfigValueFactory;
+import com.typesafe.config.impl.ConfigImplementationsAccessor;
+
+/**
+ * Converts a yaml source into a {@link ConfigValue} straight from snakeyaml's
+ * parser events. Unlike {@link YamlConfigObjConverter} no
+ * {@link org.yaml.snakeyaml.nodes.Node Node} graph is composed first, so only
+ * the resulting {@link ConfigValue} tree is ever fully held in memory.
+ * <p>
+ * Comments are collected from the parser's comment events, so
+ * {@link CommentMode#SCAN} is treated the same as {@link CommentMode#PARSER}.
+ *
+ * @author jamesratzlaff
+ *
+ */
+public class YamlEventConverter {
+
+	private final ConfigOrigin configOrigin;
+	private final ConfigIncludeContext includeContext;
+	private final YamlSource source;
+	private final CommentMode commentMode;
+	private final Resolver resolver;
+	private final YamlParseLimits limits;
+	private ConfigValue confValue;
+
+	public YamlEventConverter(ConfigOrigin configOrigin, ConfigIncludeContext includeContext, YamlSource source) {
+		this(configOrigin, includeContext, source, CommentMode.getDefault());
+	}
+
+	public YamlEventConverter(ConfigOrigin configOrigin, ConfigIncludeContext includeContext, YamlSource source,
+			CommentMode commentMode) {
+		this(configOrigin, includeContext, source, commentMode, YamlParseLimits.getDefault());
+	}
+
+	public YamlEventConverter(ConfigOrigin configOrigin, ConfigIncludeContext includeContext, YamlSource source,
+			CommentMode commentMode, YamlParseLimits limits) {
+		this.configOrigin = configOrigin;
+		this.limits = limits != null ? limits : YamlParseLimits.getDefault();
+		this.includeContext = includeContext != null
+				? includeContext.setParseOptions(includeContext.parseOptions().setAllowMissing(true))
+				: null;
+		this.source = source != null ? source : YamlSource.of("");
+		this.commentMode = commentMode == null || CommentMode.SCAN.equals(commentMode) ? CommentMode.PARSER
+				: commentMode;
+		this.resolver = new Resolver();
+	}
+
+	/**
+	 * @return the configOrigin
+	 */
+	public ConfigOrigin getConfigOrigin() {
+		return configOrigin;
+	}
+
+	/**
+	 * @return the includeContext
+	 */
+	public ConfigIncludeContext getIncludeContext() {
+		return includeContext;
+	}
+
+	/**
+	 * @return the commentMode
+	 */
+	public CommentMode getCommentMode() {
+		return commentMode;
+	}
+
+	/**
+	 * @return the limits
+	 */
+	public YamlParseLimits getLimits() {
+		return limits;
+	}
+
+	/**
+	 * @return the confValue
+	 */
+	public ConfigValue getConfValue() {
+		if (this.confValue == null) {
+			this.confValue = YamlConfigObjConverter.toDocumentsValue(getConfigOrigin(), convertDocuments());
+		}
+		return confValue;
+	}
+
+	private List<ConfigValue> convertDocuments() {
+		limits.checkSize(getConfigOrigin(), source.length());
+		Parser parser = new ParserImpl(new StreamReader(source.reader()), commentMode.processesComments());
+		YamlParseLimits.Budget budget = limits.newBudget();
+		DocumentBuilder builder = new DocumentBuilder(budget, new ArrayList<CommentLine>(0));
+		List<ConfigValue> documents = new ArrayList<ConfigValue>();
+		Event event = parser.getEvent();
+		while (event != null && !event.is(Event.ID.StreamEnd)) {
+			if (event.is(Event.ID.DocumentStart)) {
+				builder = new DocumentBuilder(budget, builder.takePendingComments());
+			} else if (event.is(Event.ID.DocumentEnd)) {
+				ConfigValue root = builder.finish();
+				if (root != null) {
+					documents.add(root);
+				}
+			} else {
+				builder.accept(event);
+			}
+			event = parser.getEvent();
+		}
+		return documents;
+	}
+
+	private ConfigOrigin createOrigin(Mark start, List<CommentLine> comments) {
+		ConfigOrigin co = getConfigOrigin().withLineNumber(start.getLine());
+		if (comments != null && !comments.isEmpty()) {
+			if (CommentMode.LAZY.equals(getCommentMode())) {
+				co = co.withComments(LazyCommentLines.of(source, comments));
+			} else {
+				co = co.withComments(comments.stream().map(CommentLine::getValue).collect(Collectors.toList()));
+			}
+		}
+		return co;
+	}
+
+	private Tag resolveTag(ScalarEvent event) {
+		String eventTag = event.getTag();
+		if (eventTag == null || "!".equals(eventTag)) {
+			return resolver.resolve(NodeId.scalar, event.getValue(), event.getImplicit().canOmitTagInPlainScalar());
+		}
+		return new Tag(eventTag);
+	}
+
+	private ConfigValue convert(ScalarEvent event, List<CommentLine> comments) {
+		Tag tag = resolveTag(event);
+		ConfigValue cv = TagProcessorService.getInstance().getConfigValue(getConfigOrigin(), tag, event.getValue(),
+				getIncludeContext());
+		return cv.withOrigin(createOrigin(event.getStartMark(), comments));
+	}
+
+	/**
+	 * Holds the partially built collections of a single document while its
+	 * events are being consumed
+	 */
+	private class DocumentBuilder {
+		private final YamlParseLimits.Budget budget;
+		private final Map<String, ConfigValue> anchors = new HashMap<String, ConfigValue>();
+		private final ArrayDeque<Frame> frames = new ArrayDeque<Frame>();
+		private List<CommentLine> pendingComments;
+		private List<CommentLine> inlineTarget;
+		private ScalarEvent pendingScalar;
+		private List<CommentLine> pendingScalarComments;
+		private ConfigValue root;
+
+		/**
+		 * @param pendingComments comments that were found before the start of the document
+		 */
+		DocumentBuilder(YamlParseLimits.Budget budget, List<CommentLine> pendingComments) {
+			this.budget = budget;
+			this.pendingComments = pendingComments;
+		}
+
+		void accept(Event event) {
+			if (event.is(Event.ID.Comment)) {
+				accept((CommentEvent) event);
+				return;
+			}
+			flushScalar();
+			inlineTarget = null;
+			if (event.is(Event.ID.Scalar)) {
+				ScalarEvent scalar = (ScalarEvent) event;
+				Frame top = frames.peek();
+				if (top != null && top.isExpectingKey()) {
+					MappingFrame mapping = (MappingFrame) top;
+					mapping.key = scalar.getValue();
+					mapping.merging = Tag.MERGE.equals(resolveTag(scalar));
+					mapping.keyComments = takePendingComments();
+					inlineTarget = mapping.keyComments;
+				} else {
+					pendingScalar = scalar;
+					pendingScalarComments = takeComments();
+					inlineTarget = pendingScalarComments;
+				}
+			} else if (event.is(Event.ID.Alias)) {
+				AliasEvent alias = (AliasEvent) event;
+				requireValuePosition(event);
+				ConfigValue anchored = anchors.get(alias.getAnchor());
+				if (anchored == null) {
+					throw new ConfigException.Parse(originOf(event),
+							"found undefined or recursive alias " + alias.getAnchor());
+				}
+				if (anchored instanceof ConfigObject || anchored instanceof ConfigList) {
+					budget.alias(originOf(event));
+				}
+				takeComments();
+				addValue(anchored, null);
+			} else if (event.is(Event.ID.MappingStart)) {
+				requireValuePosition(event);
+				budget.enter(originOf(event));
+				push(new MappingFrame((CollectionStartEvent) event, takeKeyComments()));
+			} else if (event.is(Event.ID.SequenceStart)) {
+				requireValuePosition(event);
+				budget.enter(originOf(event));
+				push(new SequenceFrame((CollectionStartEvent) event, takeKeyComments()));
+			} else if (event.is(Event.ID.MappingEnd) || event.is(Event.ID.SequenceEnd)) {
+				Frame frame = frames.pop();
+				budget.exit();
+				addValue(frame.build(), frame.anchor);
+			}
+		}
+
+		private void accept(CommentEvent event) {
+			if (CommentType.BLANK_LINE.equals(event.getCommentType())) {
+				return;
+			}
+			if (CommentType.IN_LINE.equals(event.getCommentType()) && inlineTarget != null) {
+				inlineTarget.add(new CommentLine(event));
+			} else {
+				flushScalar();
+				inlineTarget = null;
+				pendingComments.add(new CommentLine(event));
+			}
+		}
+
+		private void push(Frame frame) {
+			frames.push(frame);
+			inlineTarget = frame.comments;
+		}
+
+		private void requireValuePosition(Event event) {
+			Frame top = frames.peek();
+			if (top != null && top.isExpectingKey()) {
+				throw new ConfigException.Parse(originOf(event), "only scalar mapping keys are supported");
+			}
+		}
+
+		private ConfigOrigin originOf(Event event) {
+			return getConfigOrigin().withLineNumber(event.getStartMark().getLine());
+		}
+
+		private List<CommentLine> takePendingComments() {
+			List<CommentLine> taken = pendingComments;
+			pendingComments = new ArrayList<CommentLine>(0);
+			return taken;
+		}
+
+		/**
+		 * @return the comments of the key the next value is mapped to, if any.
+		 *         Block comments that precede a collection are left pending for
+		 *         its first entry, the same way snakeyaml's composer attaches them
+		 */
+		private List<CommentLine> takeKeyComments() {
+			List<CommentLine> taken = new ArrayList<CommentLine>(0);
+			Frame top = frames.peek();
+			if (top instanceof MappingFrame && ((MappingFrame) top).keyComments != null) {
+				taken.addAll(((MappingFrame) top).keyComments);
+			}
+			return taken;
+		}
+
+		/**
+		 * @return the comments of the key the next value is mapped to (if any)
+		 *         followed by the block comments that precede the value
+		 */
+		private List<CommentLine> takeComments() {
+			List<CommentLine> taken = takeKeyComments();
+			taken.addAll(takePendingComments());
+			return taken;
+		}
+
+		private void flushScalar() {
+			if (pendingScalar != null) {
+				ScalarEvent scalar = pendingScalar;
+				List<CommentLine> comments = pendingScalarComments;
+				pendingScalar = null;
+				pendingScalarComments = null;
+				budget.count(originOf(scalar));
+				addValue(convert(scalar, comments), scalar.getAnchor());
+			}
+		}
+
+		private void addValue(ConfigValue value, String anchor) {
+			if (anchor != null) {
+				anchors.put(anchor, value);
+			}
+			Frame top = frames.peek();
+			if (top == null) {
+				root = value;
+			} else {
+				top.add(value);
+			}
+		}
+
+		ConfigValue finish() {
+			flushScalar();
+			return root;
+		}
+
+	}
+
+	private abstract class Frame {
+		final Mark start;
+		final String anchor;
+		final List<CommentLine> comments;
+
+		Frame(NodeEvent event, List<CommentLine> comments) {
+			this.start = event.getStartMark();
+			this.anchor = event.getAnchor();
+			this.comments = comments;
+		}
+
+		boolean isExpectingKey() {
+			return false;
+		}
+
+		ConfigOrigin origin() {
+			return createOrigin(start, comments);
+		}
+
+		abstract void add(ConfigValue value);
+
+		abstract ConfigValue build();
+	}
+
+	private class MappingFrame extends Frame {
+		private final Map<String, ConfigValue> entries = new LinkedHashMap<String, ConfigValue>();
+		private Map<String, ConfigValue> merged;
+		private String key;
+		private boolean merging;
+		private List<CommentLine> keyComments;
+
+		MappingFrame(CollectionStartEvent event, List<CommentLine> comments) {
+			super(event, comments);
+		}
+
+		@Override
+		boolean isExpectingKey() {
+			return key == null;
+		}
+
+		@Override
+		void add(ConfigValue value) {
+			if (merging) {
+				if (merged == null) {
+					merged = new LinkedHashMap<String, ConfigValue>();
+				}
+				YamlConfigObjConverter.addMergedEntries(merged, value, value.origin());
+			} else {
+				entries.put(key, value);
+			}
+			key = null;
+			merging = false;
+			keyComments = null;
+		}
+
+		@Override
+		ConfigValue build() {
+			Map<String, ConfigValue> normalized = YamlConfigObjConverter.toNormalizedMap(entries, origin(), limits);
+			if (merged != null) {
+				merged.putAll(normalized);
+				normalized = merged;
+			}
+			return ConfigImplementationsAccessor.toSimpleConfigObject(origin(), normalized.entrySet());
+		}
+	}
+
+	private class SequenceFrame extends Frame {
+		private final List<ConfigValue> values = new ArrayList<ConfigValue>();
+
+		SequenceFrame(CollectionStartEvent event, List<CommentLine> comments) {
+			super(event, comments);
+		}
+
+		@Override
+		void add(ConfigValue value) {
+			values.add(value);
+		}
+
+		@Override
+		ConfigValue build() {
+			return ConfigValueFactory.fromIterable(values).withOrigin(origin());
+		}
+	}
+
+}
@@ -0,0 +1,306 @@
+package com.jamesratzlaff.typesafe;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.MalformedURLException;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import com.typesafe.config.ConfigValue;
+
+/**
+ * A process wide, size bounded cache of converted yaml sources. Entries are
+ * keyed by the source's url together with its last modified time and size in
+ * bytes, so a changed file is parsed again rather than served stale. When the
+ * total size of the cached sources goes over the limit the least recently used
+ * entries are evicted first.
+ * <p>
+ * The cache is disabled unless a limit is set with the
+ * {@value YAML_CONF#CACHE_MAX_SIZE_PROPERTY} system property. Only {@code file:}
+ * and {@code jar:} urls are cached since the modification stamp of anything
+ * else can not be checked cheaply. Values are cached with any
+ * {@code !include}d content they pulled in, so the resources a source included
+ * are stamped the same way and an entry is dropped as soon as one of them
+ * changes. A source that included anything that can't be stamped is not
+ * cached.
+ *
+ * @author jamesratzlaff
+ *
+ */
+public class YamlParseCache {
+	private static final YamlParseCache INSTANCE = new YamlParseCache(
+			Long.getLong(YAML_CONF.CACHE_MAX_SIZE_PROPERTY, 0L));
+
+	public static YamlParseCache getInstance() {
+		return INSTANCE;
+	}
+
+	private final long maxSize;
+	private final LinkedHashMap<Key, Entry> entries;
+	/**
+	 * The key each url is currently cached under, for each set of options it
+	 * was converted with
+	 */
+	private final Map<String, Map<Object, Key>> keysByUrl;
+	private long size;
+
+	public YamlParseCache(long maxSize) {
+		this.maxSize = maxSize;
+		this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+		this.keysByUrl = new HashMap<String, Map<Object, Key>>();
+	}
+
+	public boolean isEnabled() {
+		return maxSize > 0;
+	}
+
+	/**
+	 * @return the maximum total size, in bytes, of the sources whose values are cached
+	 */
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return the total size, in bytes, of the sources whose values are cached
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 *
+	 * @param url the location of the yaml source
+	 * @param options anything other than the source that affects the converted
+	 *                value, such as the comment mode
+	 * @return the key the current state of {@code url} is cached under, or
+	 *         {@code null} if it can not be cached
+	 */
+	public Key keyFor(URL url, Object options) {
+		if (!isEnabled() || url == null) {
+			return null;
+		}
+		long[] stamp = stamp(url);
+		return stamp != null ? new Key(url.toExternalForm(), stamp[0], stamp[1], options) : null;
+	}
+
+	/**
+	 * @return the last modified time and size in bytes of the resource at
+	 *         {@code url}, or {@code null} if it is not a {@code file:} or
+	 *         {@code jar:} url or they can't be read
+	 */
+	static long[] stamp(URL url) {
+		String protocol = url.getProtocol();
+		try {
+			if ("file".equalsIgnoreCase(protocol)) {
+				Path path = Paths.get(url.toURI());
+				return new long[] { Files.getLastModifiedTime(path).toMillis(), Files.size(path) };
+			} else if ("jar".equalsIgnoreCase(protocol)) {
+				URLConnection connection = url.openConnection();
+				long lastModified = connection.getLastModified();
+				long length = connection.getContentLengthLong();
+				if (lastModified > 0 && length > -1) {
+					return new long[] { lastModified, length };
+				}
+			}
+		} catch (IOException | URISyntaxException | IllegalArgumentException e) {
+			// not something that can be stamped
+		}
+		return null;
+	}
+
+	/**
+	 * @return the stamp of the resource an include was resolved to, see
+	 *         {@link #stamp(URL)}
+	 */
+	static long[] stamp(String include) {
+		try {
+			return stamp(new URL(include));
+		} catch (MalformedURLException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the entry cached under {@code key}, or {@code null} if there isn't
+	 *         one or one of the resources it included has changed
+	 */
+	public synchronized Entry get(Key key) {
+		Entry entry = key != null ? entries.get(key) : null;
+		if (entry != null && !entry.isCurrent()) {
+			remove(key);
+			return null;
+		}
+		return entry;
+	}
+
+	/**
+	 *
+	 * @param includes every resource the source included, directly or through
+	 *                 another include. Nothing is cached if one of them can't be
+	 *                 stamped.
+	 */
+	public synchronized void put(Key key, ConfigValue value, Collection<String> includes) {
+		if (key == null || value == null || key.size > maxSize) {
+			return;
+		}
+		Map<String, long[]> stamps = new LinkedHashMap<String, long[]>(includes.size());
+		for (String include : includes) {
+			long[] stamp = stamp(include);
+			if (stamp == null) {
+				return;
+			}
+			stamps.put(include, stamp);
+		}
+		Key previous = keysByUrl.computeIfAbsent(key.url, k -> new HashMap<Object, Key>()).put(key.options, key);
+		if (previous != null && !previous.equals(key) && entries.remove(previous) != null) {
+			size -= previous.size;
+		}
+		if (entries.put(key, new Entry(value, stamps)) == null) {
+			size += key.size;
+		}
+		Iterator<Key> eldest = entries.keySet().iterator();
+		while (size > maxSize && eldest.hasNext()) {
+			Key toEvict = eldest.next();
+			eldest.remove();
+			size -= toEvict.size;
+			forget(toEvict);
+		}
+	}
+
+	private void remove(Key key) {
+		if (entries.remove(key) != null) {
+			size -= key.size;
+			forget(key);
+		}
+	}
+
+	private void forget(Key key) {
+		Map<Object, Key> byOptions = keysByUrl.get(key.url);
+		if (byOptions != null && byOptions.remove(key.options, key) && byOptions.isEmpty()) {
+			keysByUrl.remove(key.url);
+		}
+	}
+
+	/**
+	 * Drops the cached values of {@code url}, if there are any
+	 */
+	public synchronized void invalidate(URL url) {
+		if (url != null) {
+			Map<Object, Key> byOptions = keysByUrl.remove(url.toExternalForm());
+			if (byOptions != null) {
+				for (Key key : byOptions.values()) {
+					if (entries.remove(key) != null) {
+						size -= key.size;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Drops every cached value
+	 */
+	public synchronized void invalidate() {
+		entries.clear();
+		keysByUrl.clear();
+		size = 0;
+	}
+
+	/**
+	 * A cached value along with the stamps of the resources its source included
+	 */
+	public static final class Entry {
+		private final ConfigValue value;
+		private final Map<String, long[]> includes;
+
+		Entry(ConfigValue value, Map<String, long[]> includes) {
+			this.value = value;
+			this.includes = includes;
+		}
+
+		/**
+		 * @return the value
+		 */
+		public ConfigValue getValue() {
+			return value;
+		}
+
+		/**
+		 * @return every resource the source included, directly or through another
+		 *         include
+		 */
+		public Set<String> getIncludes() {
+			return Collections.unmodifiableSet(includes.keySet());
+		}
+
+		boolean isCurrent() {
+			for (Map.Entry<String, long[]> include : includes.entrySet()) {
+				if (!Arrays.equals(include.getValue(), stamp(include.getKey()))) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	public static final class Key {
+		private final String url;
+		private final long lastModified;
+		private final long size;
+		private final Object options;
+
+		Key(String url, long lastModified, long size, Object options) {
+			this.url = url;
+			this.lastModified = lastModified;
+			this.size = size;
+			this.options = options;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(url, lastModified, size, options);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return lastModified == other.lastModified && size == other.size && Objects.equals(url, other.url)
+					&& Objects.equals(options, other.options);
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder();
+			builder.append("Key [url=");
+			builder.append(url);
+			builder.append(", lastModified=");
+			builder.append(lastModified);
+			builder.append(", size=");
+			builder.append(size);
+			builder.append(", options=");
+			builder.append(options);
+			builder.append("]");
+			return builder.toString();
+		}
+	}
+
+}
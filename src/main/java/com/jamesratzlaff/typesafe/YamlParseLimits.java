@@ -0,0 +1,282 @@
+package com.jamesratzlaff.typesafe;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.yaml.snakeyaml.LoaderOptions;
+
+import com.typesafe.config.ConfigException;
+import com.typesafe.config.ConfigOrigin;
+
+/**
+ * The resource budget a single yaml source is allowed to use while it is
+ * composed and converted. Going over any of the limits fails the parse with a
+ * {@link ConfigException.Parse} instead of letting a hostile or broken file
+ * (alias bombs, absurd nesting, keys like {@code foo[99999999]}) burn through
+ * cpu and heap.
+ * <p>
+ * A limit of {@link #UNLIMITED} disables that check.
+ *
+ * @author jamesratzlaff
+ *
+ */
+public class YamlParseLimits {
+	public static final int UNLIMITED = -1;
+	/**
+	 * snakeyaml's own default for the number of aliases to collections
+	 */
+	public static final int DEFAULT_MAX_ALIASES = 50;
+	/**
+	 * snakeyaml's own default for how deeply collections may nest
+	 */
+	public static final int DEFAULT_MAX_DEPTH = 50;
+
+	private static final YamlParseLimits UNLIMITED_LIMITS = new YamlParseLimits(UNLIMITED, UNLIMITED, UNLIMITED,
+			UNLIMITED, UNLIMITED);
+
+	private final int maxAliases;
+	private final int maxDepth;
+	private final int maxNodes;
+	private final long maxSize;
+	private final int maxArrayIndex;
+
+	private YamlParseLimits(int maxAliases, int maxDepth, int maxNodes, long maxSize, int maxArrayIndex) {
+		this.maxAliases = maxAliases;
+		this.maxDepth = maxDepth;
+		this.maxNodes = maxNodes;
+		this.maxSize = maxSize;
+		this.maxArrayIndex = maxArrayIndex;
+	}
+
+	/**
+	 * @return limits where nothing but snakeyaml's own alias and depth defaults
+	 *         are enforced, each of which can be overridden with the
+	 *         {@code com.jamesratzlaff.typesafe.yaml.limits.*} system properties
+	 *         in {@link YAML_CONF}
+	 */
+	public static YamlParseLimits getDefault() {
+		return new YamlParseLimits(Integer.getInteger(YAML_CONF.MAX_ALIASES_PROPERTY, DEFAULT_MAX_ALIASES),
+				Integer.getInteger(YAML_CONF.MAX_DEPTH_PROPERTY, DEFAULT_MAX_DEPTH),
+				Integer.getInteger(YAML_CONF.MAX_NODES_PROPERTY, UNLIMITED),
+				Long.getLong(YAML_CONF.MAX_SIZE_PROPERTY, UNLIMITED),
+				Integer.getInteger(YAML_CONF.MAX_ARRAY_INDEX_PROPERTY, UNLIMITED));
+	}
+
+	public static YamlParseLimits unlimited() {
+		return UNLIMITED_LIMITS;
+	}
+
+	public YamlParseLimits withMaxAliases(int maxAliases) {
+		return new YamlParseLimits(maxAliases, maxDepth, maxNodes, maxSize, maxArrayIndex);
+	}
+
+	public YamlParseLimits withMaxDepth(int maxDepth) {
+		return new YamlParseLimits(maxAliases, maxDepth, maxNodes, maxSize, maxArrayIndex);
+	}
+
+	public YamlParseLimits withMaxNodes(int maxNodes) {
+		return new YamlParseLimits(maxAliases, maxDepth, maxNodes, maxSize, maxArrayIndex);
+	}
+
+	public YamlParseLimits withMaxSize(long maxSize) {
+		return new YamlParseLimits(maxAliases, maxDepth, maxNodes, maxSize, maxArrayIndex);
+	}
+
+	public YamlParseLimits withMaxArrayIndex(int maxArrayIndex) {
+		return new YamlParseLimits(maxAliases, maxDepth, maxNodes, maxSize, maxArrayIndex);
+	}
+
+	/**
+	 * @return the maximum number of aliases that may be expanded
+	 */
+	public int getMaxAliases() {
+		return maxAliases;
+	}
+
+	/**
+	 * @return the maximum depth collections may be nested to
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * @return the maximum number of values that may be converted, an anchored
+	 *         value is counted once however often it is aliased
+	 */
+	public int getMaxNodes() {
+		return maxNodes;
+	}
+
+	/**
+	 * @return the maximum number of characters (UTF-16 code units, not bytes)
+	 *         the decoded source may have. A source read from a {@link java.io.Reader}
+	 *         is rejected as soon as it goes over, see
+	 *         {@link #read(ConfigOrigin, java.io.Reader)}
+	 */
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return the largest index allowed in an array style key such as
+	 *         {@code foo[3]}
+	 */
+	public int getMaxArrayIndex() {
+		return maxArrayIndex;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(maxAliases, maxDepth, maxNodes, maxSize, maxArrayIndex);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof YamlParseLimits)) {
+			return false;
+		}
+		YamlParseLimits other = (YamlParseLimits) obj;
+		return maxAliases == other.maxAliases && maxDepth == other.maxDepth && maxNodes == other.maxNodes
+				&& maxSize == other.maxSize && maxArrayIndex == other.maxArrayIndex;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("YamlParseLimits [maxAliases=");
+		builder.append(maxAliases);
+		builder.append(", maxDepth=");
+		builder.append(maxDepth);
+		builder.append(", maxNodes=");
+		builder.append(maxNodes);
+		builder.append(", maxSize=");
+		builder.append(maxSize);
+		builder.append(", maxArrayIndex=");
+		builder.append(maxArrayIndex);
+		builder.append("]");
+		return builder.toString();
+	}
+
+	private static boolean exceeds(long limit, long value) {
+		return limit != UNLIMITED && value > limit;
+	}
+
+	/**
+	 * @return the {@link LoaderOptions} that make snakeyaml enforce the limits it
+	 *         knows about while composing
+	 */
+	LoaderOptions toLoaderOptions(boolean processComments) {
+		LoaderOptions loaderOptions = new LoaderOptions();
+		loaderOptions.setProcessComments(processComments);
+		loaderOptions.setMaxAliasesForCollections(maxAliases != UNLIMITED ? maxAliases : Integer.MAX_VALUE);
+		loaderOptions.setNestingDepthLimit(maxDepth != UNLIMITED ? maxDepth : Integer.MAX_VALUE);
+		loaderOptions.setAllowRecursiveKeys(false);
+		return loaderOptions;
+	}
+
+	/**
+	 * Buffers {@code reader} into a {@link YamlSource}, failing as soon as more
+	 * than {@link #getMaxSize()} characters have been read rather than after
+	 * reading all of them
+	 */
+	YamlSource read(ConfigOrigin origin, Reader reader) throws IOException {
+		try {
+			return YamlSource.of(reader, maxSize);
+		} catch (YamlSource.TooLargeException e) {
+			throw new ConfigException.Parse(origin, e.getMessage(), e);
+		}
+	}
+
+	void checkSize(ConfigOrigin origin, long size) {
+		if (exceeds(maxSize, size)) {
+			throw new ConfigException.Parse(origin,
+					"yaml source is " + size + " characters long which is more than the limit of " + maxSize);
+		}
+	}
+
+	void checkArrayIndex(ConfigOrigin origin, String key, long index) {
+		if (exceeds(maxArrayIndex, index)) {
+			throw new ConfigException.Parse(origin,
+					"array index " + index + " of " + key + " is larger than the limit of " + maxArrayIndex);
+		}
+	}
+
+	/**
+	 * @return a new counter for a single parse
+	 */
+	Budget newBudget() {
+		return new Budget();
+	}
+
+	/**
+	 * Tracks what a single parse has used so far. The counts are shared by every
+	 * thread converting part of the parse, the depth is tracked per thread.
+	 */
+	class Budget {
+		private final AtomicInteger nodes = new AtomicInteger();
+		private final AtomicInteger aliases = new AtomicInteger();
+		private final ThreadLocal<int[]> depths = ThreadLocal.withInitial(() -> new int[1]);
+
+		/**
+		 * Counts a value that does not nest, i.e. a scalar
+		 */
+		void count(ConfigOrigin origin) {
+			if (exceeds(maxNodes, nodes.incrementAndGet())) {
+				throw new ConfigException.Parse(origin, "yaml source has more than the limit of " + maxNodes + " values");
+			}
+		}
+
+		/**
+		 * Counts a mapping or sequence and nests one level deeper, every call has
+		 * to be matched by a call to {@link #exit()}
+		 */
+		void enter(ConfigOrigin origin) {
+			int depth = ++depths.get()[0];
+			count(origin);
+			if (exceeds(maxDepth, depth)) {
+				throw new ConfigException.Parse(origin, "yaml source nests deeper than the limit of " + maxDepth);
+			}
+		}
+
+		void exit() {
+			depths.get()[0]--;
+		}
+
+		/**
+		 * @return how deeply the current thread has nested
+		 */
+		int getDepth() {
+			return depths.get()[0];
+		}
+
+		/**
+		 * Runs {@code task} on the current thread as if it had nested to
+		 * {@code depth}, used when part of a subtree is converted on another thread
+		 */
+		<T> T atDepth(int depth, Supplier<T> task) {
+			int[] current = depths.get();
+			int previous = current[0];
+			current[0] = depth;
+			try {
+				return task.get();
+			} finally {
+				current[0] = previous;
+			}
+		}
+
+		void alias(ConfigOrigin origin) {
+			if (exceeds(maxAliases, aliases.incrementAndGet())) {
+				throw new ConfigException.Parse(origin,
+						"yaml source expands more than the limit of " + maxAliases + " aliases");
+			}
+		}
+	}
+
+}
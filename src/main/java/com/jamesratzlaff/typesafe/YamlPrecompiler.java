@@ -0,0 +1,213 @@
+package com.jamesratzlaff.typesafe;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.jamesratzlaff.typesafe.YamlSnapshotStore.YamlSnapshot;
+import com.jamesratzlaff.yaml.spi.impl.service.IncludeResolver;
+import com.typesafe.config.ConfigIncludeContext;
+import com.typesafe.config.ConfigOrigin;
+import com.typesafe.config.ConfigOriginFactory;
+import com.typesafe.config.ConfigParseOptions;
+import com.typesafe.config.ConfigValue;
+import com.typesafe.config.impl.ConfigImplementationsAccessor;
+import com.typesafe.config.impl.ConfigValueCodec;
+
+/**
+ * Converts yaml files at build time into precompiled artifacts that
+ * {@link YamlConfigProvider} loads instead of parsing the yaml. The artifact
+ * for {@code foo.yml} is written as {@code foo.yml}{@value #EXTENSION} and is
+ * looked for next to the yaml at runtime (in the same directory or jar) when
+ * the {@value YAML_CONF#PRECOMPILED_PROPERTY} system property is {@code true}.
+ * It holds a hash of the yaml it was built from and is ignored once the yaml
+ * no longer matches it.
+ * <p>
+ * Anything a file {@code !include}s is baked into its artifact, along with
+ * where each include was found relative to the file and a hash of its
+ * content. The artifact is ignored once any of them can't be read or has
+ * changed. Hashes are used rather than modification times since those don't
+ * survive copying the files into a build's output or a jar. Origins are stored
+ * relative to the file so errors still point at wherever the yaml is loaded
+ * from at runtime.
+ * <p>
+ * Usage: {@code java com.jamesratzlaff.typesafe.YamlPrecompiler <source dir> <output dir>},
+ * for example from the {@code exec-maven-plugin} in the
+ * {@code process-resources} phase with {@code src/main/resources} and
+ * {@code target/classes}.
+ *
+ * @author jamesratzlaff
+ *
+ */
+public class YamlPrecompiler {
+	public static final String EXTENSION = ".ymlc";
+	private static final int MAGIC = 0x594d4c43;
+	private static final int FORMAT_VERSION = 2;
+	private static final String INCLUDE_HASH_OPTIONS = "include";
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: " + YamlPrecompiler.class.getName() + " <source dir> <output dir>");
+			System.exit(1);
+		}
+		Path sourceDir = Paths.get(args[0]);
+		Path outputDir = Paths.get(args[1]);
+		List<Path> sources;
+		try (Stream<Path> files = Files.walk(sourceDir)) {
+			sources = files.filter(Files::isRegularFile).filter(YamlPrecompiler::isYaml).collect(Collectors.toList());
+		}
+		for (Path source : sources) {
+			Path target = outputDir.resolve(sourceDir.relativize(source).toString() + EXTENSION);
+			precompile(source, target);
+			System.out.println(source + " -> " + target);
+		}
+	}
+
+	private static boolean isYaml(Path path) {
+		String name = path.getFileName().toString();
+		return name.endsWith(".yml") || name.endsWith(".yaml");
+	}
+
+	/**
+	 * Converts {@code source} and writes its precompiled artifact to
+	 * {@code target}
+	 */
+	public static void precompile(Path source, Path target) throws IOException {
+		ConfigOrigin origin = ConfigOriginFactory.newFile(source.toString());
+		ConfigIncludeContext includeContext = ConfigImplementationsAccessor.newIncludeContext(source.toFile(),
+				ConfigParseOptions.defaults());
+		YamlSource yaml = YamlSource.of(source);
+		ConfigValue value;
+		Set<String> included;
+		IncludeResolver includes = IncludeResolver.begin(origin);
+		try {
+			value = new YamlConfigProvider().parseValue(yaml, origin, includeContext);
+			included = includes.getIncludedBy(origin);
+		} finally {
+			includes.end();
+		}
+		URL url = source.toUri().toURL();
+		Map<String, String> hashes = new LinkedHashMap<String, String>(included.size());
+		for (String include : included) {
+			String hash = hashOf(new URL(include));
+			if (hash == null) {
+				throw new IOException(source + " includes " + include + " which can not be read");
+			}
+			hashes.put(relativize(url, include), hash);
+		}
+		if (target.getParent() != null) {
+			Files.createDirectories(target.getParent());
+		}
+		try (OutputStream os = Files.newOutputStream(target)) {
+			write(os, YamlSnapshotStore.contentKeyFor(yaml, YamlConfigProvider.getCacheOptions()), hashes, origin,
+					value);
+		}
+	}
+
+	/**
+	 * @return where {@code include} is relative to {@code url} if both are
+	 *         files, otherwise {@code include} itself
+	 */
+	private static String relativize(URL url, String include) {
+		try {
+			URL includeUrl = new URL(include);
+			if ("file".equalsIgnoreCase(url.getProtocol()) && "file".equalsIgnoreCase(includeUrl.getProtocol())) {
+				Path directory = Paths.get(url.toURI()).getParent();
+				Path relative = directory.relativize(Paths.get(includeUrl.toURI()));
+				return relative.toString().replace(relative.getFileSystem().getSeparator(), "/");
+			}
+		} catch (MalformedURLException | URISyntaxException | IllegalArgumentException e) {
+			// kept as is
+		}
+		return include;
+	}
+
+	/**
+	 * @return a hash of the content of {@code url}, or {@code null} if it can't
+	 *         be read
+	 */
+	static String hashOf(URL url) {
+		try {
+			return YamlSnapshotStore.contentKeyFor(YamlSource.of(url), INCLUDE_HASH_OPTIONS);
+		} catch (IOException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	static void write(OutputStream os, String key, Map<String, String> includes, ConfigOrigin origin,
+			ConfigValue value) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeUTF(key);
+		out.writeInt(includes.size());
+		for (Map.Entry<String, String> include : includes.entrySet()) {
+			out.writeUTF(include.getKey());
+			out.writeUTF(include.getValue());
+		}
+		out.writeBoolean(value != null);
+		if (value != null) {
+			ConfigValueCodec.write(out, value, origin);
+		}
+		out.flush();
+	}
+
+	/**
+	 *
+	 * @param url    the location of the yaml
+	 * @param source the yaml
+	 * @param origin the origin the yaml is being loaded with
+	 * @return the value of the precompiled artifact next to {@code url} along
+	 *         with the resources it included, or {@code null} if there isn't one,
+	 *         it was not built from {@code source} or one of its includes has
+	 *         changed
+	 */
+	public static YamlSnapshot read(URL url, YamlSource source, ConfigOrigin origin) {
+		URL artifact;
+		try {
+			artifact = new URL(url.toExternalForm() + EXTENSION);
+		} catch (MalformedURLException e) {
+			return null;
+		}
+		try (InputStream is = artifact.openStream()) {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(is));
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				return null;
+			}
+			String key = in.readUTF();
+			if (!key.equals(YamlSnapshotStore.contentKeyFor(source, YamlConfigProvider.getCacheOptions()))) {
+				return null;
+			}
+			int includeCount = in.readInt();
+			List<String> includes = new ArrayList<String>(Math.max(0, Math.min(includeCount, 64)));
+			for (int i = 0; i < includeCount; i++) {
+				URL include = new URL(url, in.readUTF());
+				if (!in.readUTF().equals(hashOf(include))) {
+					return null;
+				}
+				includes.add(include.toExternalForm());
+			}
+			return in.readBoolean() ? new YamlSnapshot(ConfigValueCodec.read(in, origin), includes) : null;
+		} catch (IOException | RuntimeException e) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,279 @@
+package com.jamesratzlaff.typesafe;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.typesafe.config.ConfigOrigin;
+import com.typesafe.config.ConfigValue;
+import com.typesafe.config.impl.ConfigValueCodec;
+
+/**
+ * A directory of binary snapshots of converted yaml sources, see
+ * {@link ConfigValueCodec} for the format of the value itself. A snapshot is
+ * keyed by a hash of the source's content, its location (relative includes
+ * depend on it) and the options it was converted with, so reading one back
+ * skips yaml parsing entirely. The resources the source included are recorded
+ * with their modification stamps and a snapshot whose includes have changed is
+ * ignored.
+ * <p>
+ * Snapshots are only written for sources whose includes are all {@code file:}
+ * or {@code jar:} urls since nothing else can be checked for changes.
+ *
+ * @author jamesratzlaff
+ *
+ */
+public class YamlSnapshotStore {
+	private static final int MAGIC = 0x59414d4c;
+	private static final int FORMAT_VERSION = 1;
+	private static final String EXTENSION = ".ymlsnap";
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final Path directory;
+
+	public YamlSnapshotStore(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * @return the store in the directory named by the
+	 *         {@value YAML_CONF#SNAPSHOT_DIR_PROPERTY} system property, or
+	 *         {@code null} if it is not set
+	 */
+	public static YamlSnapshotStore getDefault() {
+		String directory = System.getProperty(YAML_CONF.SNAPSHOT_DIR_PROPERTY);
+		return directory != null && !directory.isEmpty() ? new YamlSnapshotStore(Paths.get(directory)) : null;
+	}
+
+	/**
+	 * @return the directory
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 *
+	 * @param origin  the origin of the source
+	 * @param source  the source
+	 * @param options anything other than the source that affects the converted
+	 *                value
+	 * @return the key {@code source} is stored under
+	 */
+	public static String keyFor(ConfigOrigin origin, CharSequence source, Object options) {
+		return hash(FORMAT_VERSION + "\n" + locationOf(origin) + "\n" + options + "\n", source);
+	}
+
+	/**
+	 * @return a key for {@code source} that does not depend on where it is
+	 *         loaded from, see {@link YamlPrecompiler}
+	 */
+	public static String contentKeyFor(CharSequence source, Object options) {
+		return hash(FORMAT_VERSION + "\n" + options + "\n", source);
+	}
+
+	private static String hash(String prefix, CharSequence source) {
+		MessageDigest digest = newDigest();
+		digest.update(toBytes(prefix));
+		byte[] buffer = new byte[8192];
+		int used = 0;
+		for (int i = 0; i < source.length(); i++) {
+			char c = source.charAt(i);
+			buffer[used++] = (byte) (c >> 8);
+			buffer[used++] = (byte) c;
+			if (used == buffer.length) {
+				digest.update(buffer, 0, used);
+				used = 0;
+			}
+		}
+		digest.update(buffer, 0, used);
+		byte[] hash = digest.digest();
+		char[] hex = new char[hash.length << 1];
+		for (int i = 0; i < hash.length; i++) {
+			hex[i << 1] = HEX[(hash[i] >> 4) & 0xf];
+			hex[(i << 1) + 1] = HEX[hash[i] & 0xf];
+		}
+		return new String(hex);
+	}
+
+	/**
+	 *
+	 * @param key a key from {@link #keyFor(ConfigOrigin, CharSequence, Object)}
+	 * @return the snapshot stored under {@code key}, or {@code null} if there
+	 *         isn't one, it can't be read (a truncated or corrupt file included)
+	 *         or one of its includes has changed
+	 */
+	public YamlSnapshot read(String key) {
+		try (InputStream is = Files.newInputStream(directory.resolve(key + EXTENSION))) {
+			return read(is);
+		} catch (IOException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the snapshot in {@code is}, or {@code null} if one of its includes
+	 *         has changed
+	 * @throws IOException if {@code is} does not hold a snapshot
+	 */
+	public static YamlSnapshot read(InputStream is) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(is));
+		if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+			throw new IOException("not a yaml snapshot, or one from a different version");
+		}
+		int includeCount = in.readInt();
+		List<String> includes = new ArrayList<String>(Math.max(0, Math.min(includeCount, 64)));
+		for (int i = 0; i < includeCount; i++) {
+			String include = in.readUTF();
+			long lastModified = in.readLong();
+			long size = in.readLong();
+			long[] stamp = stamp(include);
+			if (stamp == null || stamp[0] != lastModified || stamp[1] != size) {
+				return null;
+			}
+			includes.add(include);
+		}
+		return new YamlSnapshot(ConfigValueCodec.read(in), includes);
+	}
+
+	/**
+	 * Stores {@code value} under {@code key}. Nothing is stored if one of
+	 * {@code includes} can not be checked for changes or {@code value} can't be
+	 * written, failing to store a snapshot is not an error.
+	 *
+	 * @param key      a key from
+	 *                 {@link #keyFor(ConfigOrigin, CharSequence, Object)}
+	 * @param value    the converted value of the source
+	 * @param includes every resource the source included
+	 * @return {@code true} if the snapshot was stored
+	 */
+	public boolean write(String key, ConfigValue value, Collection<String> includes) {
+		Path target = directory.resolve(key + EXTENSION);
+		Path temp = null;
+		try {
+			Files.createDirectories(directory);
+			temp = Files.createTempFile(directory, key, ".tmp");
+			try (OutputStream os = Files.newOutputStream(temp)) {
+				if (!write(os, value, includes)) {
+					return false;
+				}
+			}
+			try {
+				Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+			temp = null;
+			return true;
+		} catch (IOException | RuntimeException e) {
+			return false;
+		} finally {
+			if (temp != null) {
+				try {
+					Files.deleteIfExists(temp);
+				} catch (IOException e) {
+					// left for the next clean of the directory
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes a snapshot of {@code value} to {@code os}
+	 *
+	 * @return {@code false} if one of {@code includes} can not be checked for
+	 *         changes, in which case nothing is written
+	 * @throws IOException if {@code value} can't be written
+	 */
+	public static boolean write(OutputStream os, ConfigValue value, Collection<String> includes) throws IOException {
+		List<long[]> stamps = new ArrayList<long[]>(includes.size());
+		for (String include : includes) {
+			long[] stamp = stamp(include);
+			if (stamp == null) {
+				return false;
+			}
+			stamps.add(stamp);
+		}
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeInt(includes.size());
+		int i = 0;
+		for (String include : includes) {
+			long[] stamp = stamps.get(i++);
+			out.writeUTF(include);
+			out.writeLong(stamp[0]);
+			out.writeLong(stamp[1]);
+		}
+		ConfigValueCodec.write(out, value);
+		out.flush();
+		return true;
+	}
+
+	private static long[] stamp(String include) {
+		return YamlParseCache.stamp(include);
+	}
+
+	private static String locationOf(ConfigOrigin origin) {
+		if (origin == null) {
+			return "";
+		}
+		return origin.url() != null ? origin.url().toExternalForm() : origin.description();
+	}
+
+	private static byte[] toBytes(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is required to be supported by every jvm", e);
+		}
+	}
+
+	/**
+	 * A converted value read back from a snapshot along with the resources the
+	 * source included
+	 */
+	public static final class YamlSnapshot {
+		private final ConfigValue value;
+		private final List<String> includes;
+
+		YamlSnapshot(ConfigValue value, List<String> includes) {
+			this.value = value;
+			this.includes = includes;
+		}
+
+		/**
+		 * @return the value
+		 */
+		public ConfigValue getValue() {
+			return value;
+		}
+
+		/**
+		 * @return the includes
+		 */
+		public List<String> getIncludes() {
+			return includes;
+		}
+	}
+
+}
@@ -0,0 +1,289 @@
+package com.jamesratzlaff.typesafe;
+
+import java.io.BufferedReader;
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import org.yaml.snakeyaml.reader.UnicodeReader;
+
+/**
+ * A fully buffered copy of a yaml document's characters. The source is read
+ * exactly once and then handed out as many times as needed (to the yaml
+ * composer, the {@link CommentReader}, etc...) without going back to the
+ * originating resource.
+ *
+ * @author jamesratzlaff
+ *
+ */
+public class YamlSource implements CharSequence {
+	private static final int DEFAULT_BUFFER_SIZE = 8192;
+	private static final byte[] UTF8_BOM = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+	private static final byte[] UTF16BE_BOM = { (byte) 0xFE, (byte) 0xFF };
+	private static final byte[] UTF16LE_BOM = { (byte) 0xFF, (byte) 0xFE };
+
+	private final char[] chars;
+	private final int offset;
+	private final int length;
+	private volatile int[] lineStarts;
+
+	YamlSource(char[] chars, int offset, int length) {
+		this.chars = chars != null ? chars : new char[0];
+		this.offset = offset;
+		this.length = chars != null ? length : 0;
+	}
+
+	public static YamlSource of(Reader reader) throws IOException {
+		return of(reader, -1);
+	}
+
+	/**
+	 * Reads {@code reader} but gives up as soon as it has read more than
+	 * {@code maxChars} characters, so an oversized source is never buffered in
+	 * full
+	 * 
+	 * @param maxChars the most characters (UTF-16 code units, not bytes) the
+	 *                 source may have, negative for no limit
+	 * @throws TooLargeException if {@code reader} has more than
+	 *                           {@code maxChars} characters
+	 */
+	public static YamlSource of(Reader reader, long maxChars) throws IOException {
+		if (reader == null) {
+			return new YamlSource(null, 0, 0);
+		}
+		char[] buffer = new char[(int) (maxChars >= 0 ? Math.min(DEFAULT_BUFFER_SIZE, maxChars + 1) : DEFAULT_BUFFER_SIZE)];
+		int size = 0;
+		int read;
+		while ((read = reader.read(buffer, size, buffer.length - size)) != -1) {
+			size += read;
+			if (maxChars >= 0 && size > maxChars) {
+				throw new TooLargeException(maxChars);
+			}
+			if (size == buffer.length) {
+				long grown = (long) buffer.length << 1;
+				buffer = Arrays.copyOf(buffer, (int) (maxChars >= 0 ? Math.min(grown, maxChars + 1) : grown));
+			}
+		}
+		return new YamlSource(buffer, 0, size);
+	}
+
+	public static YamlSource of(InputStream is) throws IOException {
+		return of(is != null ? new UnicodeReader(is) : null);
+	}
+
+	/**
+	 * {@code file:} urls are memory mapped, see {@link #of(Path)}
+	 */
+	public static YamlSource of(URL url) throws IOException {
+		if (url == null) {
+			return of((Reader) null);
+		}
+		if ("file".equalsIgnoreCase(url.getProtocol())) {
+			try {
+				return of(Paths.get(url.toURI()));
+			} catch (URISyntaxException | IllegalArgumentException e) {
+				// not something the default file system understands, fall back to the stream
+			}
+		}
+		try (InputStream is = url.openStream()) {
+			return of(is);
+		}
+	}
+
+	/**
+	 * Maps the file into memory and decodes it directly into this source's
+	 * buffer, skipping the stream and reader copies
+	 */
+	public static YamlSource of(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException(path + " is too large to be read as a yaml source (" + size + " bytes)");
+			}
+			return of(channel.map(MapMode.READ_ONLY, 0, size));
+		}
+	}
+
+	public static YamlSource of(byte[] bytes) throws IOException {
+		return of(bytes != null ? ByteBuffer.wrap(bytes) : ByteBuffer.allocate(0));
+	}
+
+	/**
+	 * Decodes the remaining bytes of {@code bytes}. Like snakeyaml's
+	 * {@link UnicodeReader} the encoding is taken from the byte order mark and
+	 * UTF-8 is assumed when there isn't one.
+	 */
+	public static YamlSource of(ByteBuffer bytes) throws IOException {
+		ByteBuffer toDecode = bytes.slice();
+		Charset charset = StandardCharsets.UTF_8;
+		int bomLength = 0;
+		if (startsWith(toDecode, UTF8_BOM)) {
+			bomLength = UTF8_BOM.length;
+		} else if (startsWith(toDecode, UTF16BE_BOM)) {
+			charset = StandardCharsets.UTF_16BE;
+			bomLength = UTF16BE_BOM.length;
+		} else if (startsWith(toDecode, UTF16LE_BOM)) {
+			charset = StandardCharsets.UTF_16LE;
+			bomLength = UTF16LE_BOM.length;
+		}
+		toDecode.position(bomLength);
+		CharBuffer decoded = charset.newDecoder().onMalformedInput(CodingErrorAction.REPORT)
+				.onUnmappableCharacter(CodingErrorAction.REPORT).decode(toDecode);
+		if (decoded.hasArray()) {
+			return new YamlSource(decoded.array(), decoded.arrayOffset() + decoded.position(), decoded.remaining());
+		}
+		char[] chars = new char[decoded.remaining()];
+		decoded.get(chars);
+		return new YamlSource(chars, 0, chars.length);
+	}
+
+	private static boolean startsWith(ByteBuffer bytes, byte[] prefix) {
+		if (bytes.remaining() < prefix.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if (bytes.get(bytes.position() + i) != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public static YamlSource of(CharSequence cs) {
+		String asString = cs != null ? cs.toString() : "";
+		return new YamlSource(asString.toCharArray(), 0, asString.length());
+	}
+
+	/**
+	 * @return a new {@link Reader} positioned at the start of this source
+	 */
+	public Reader reader() {
+		return new CharArrayReader(chars, offset, length);
+	}
+
+	/**
+	 * @return the lines of this source, terminated the same way
+	 *         {@link BufferedReader#readLine()} terminates them
+	 */
+	public Stream<String> lines() {
+		return new BufferedReader(reader()).lines();
+	}
+
+	/**
+	 * @param line a 0 based line number
+	 * @return the index of the first character of {@code line}, or
+	 *         {@link #length()} if this source does not have that many lines
+	 */
+	public int getLineStart(int line) {
+		int[] starts = getLineStarts();
+		if (line < 0) {
+			return 0;
+		}
+		return line < starts.length ? starts[line] : length;
+	}
+
+	/**
+	 * @param index the index of a character in this source
+	 * @return the index of the line break that ends the line {@code index} is on,
+	 *         or {@link #length()} if that is the last line
+	 */
+	public int getLineEnd(int index) {
+		for (int i = Math.max(index, 0); i < length; i++) {
+			if (isLineBreak(chars[offset + i])) {
+				return i;
+			}
+		}
+		return length;
+	}
+
+	private int[] getLineStarts() {
+		int[] starts = this.lineStarts;
+		if (starts == null) {
+			int[] found = new int[16];
+			int count = 0;
+			found[count++] = 0;
+			for (int i = 0; i < length; i++) {
+				char c = chars[offset + i];
+				if (isLineBreak(c)) {
+					if (c == '\r' && i + 1 < length && chars[offset + i + 1] == '\n') {
+						i++;
+					}
+					if (count == found.length) {
+						found = Arrays.copyOf(found, count << 1);
+					}
+					found[count++] = i + 1;
+				}
+			}
+			starts = Arrays.copyOf(found, count);
+			this.lineStarts = starts;
+		}
+		return starts;
+	}
+
+	private static boolean isLineBreak(char c) {
+		return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("index " + index + " is out of bounds for length " + length);
+		}
+		return chars[offset + index];
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if (start < 0 || end > length || start > end) {
+			throw new IndexOutOfBoundsException("[" + start + "," + end + ") is out of bounds for length " + length);
+		}
+		return new String(chars, offset + start, end - start);
+	}
+
+	@Override
+	public String toString() {
+		return new String(chars, offset, length);
+	}
+
+	/**
+	 * Thrown by {@link YamlSource#of(Reader, long)} once a source turns out to
+	 * be longer than it is allowed to be
+	 */
+	public static class TooLargeException extends IOException {
+		private static final long serialVersionUID = 1L;
+		private final long limit;
+
+		public TooLargeException(long limit) {
+			super("yaml source is longer than the limit of " + limit + " characters");
+			this.limit = limit;
+		}
+
+		/**
+		 * @return the number of characters the source was allowed to have
+		 */
+		public long getLimit() {
+			return limit;
+		}
+	}
+
+}
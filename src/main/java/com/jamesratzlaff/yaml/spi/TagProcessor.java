@@ -1,5 +1,8 @@
 package com.jamesratzlaff.yaml.spi;
 
+import java.util.Collections;
+import java.util.Set;
+
 import org.yaml.snakeyaml.nodes.Node;
 import org.yaml.snakeyaml.nodes.ScalarNode;
 import org.yaml.snakeyaml.nodes.Tag;
@@ -10,8 +13,29 @@ import com.typesafe.config.ConfigValue;
 import com.typesafe.config.ConfigValueFactory;
 
 public interface TagProcessor {
+	int DEFAULT_PRIORITY = 0;
 
 	boolean isCompatible(Tag t);
+
+	/**
+	 * 
+	 * @return the tags this processor handles, they are looked up directly
+	 *         rather than by asking every processor whether it
+	 *         {@link #isCompatible(Tag) is compatible}. A processor that returns
+	 *         an empty set is only asked about tags no processor declares.
+	 */
+	default Set<Tag> getTags() {
+		return Collections.emptySet();
+	}
+
+	/**
+	 * 
+	 * @return the priority of this processor, when more than one processor
+	 *         handles a tag the one with the highest priority is used
+	 */
+	default int getPriority() {
+		return DEFAULT_PRIORITY;
+	}
 	default ConfigValue apply(Node node) {
 		return apply(null, node);
 	}
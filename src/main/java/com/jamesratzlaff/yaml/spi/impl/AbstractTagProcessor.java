@@ -19,32 +19,81 @@ import com.typesafe.config.ConfigValueFactory;
 
 public class AbstractTagProcessor implements TagProcessor{
 
+	private final Set<Tag> tags;
+	/**
+	 * Tested for tags that aren't in {@link #tags}, {@code null} if there are no
+	 * other compatible tags
+	 */
+	private final Predicate<Tag> fallback;
+	private final int priority;
 	private final Predicate<Tag> compatibleTags;
+	/**
+	 * The processor a copy made by {@link #withTags(Tag, Tag...)} or
+	 * {@link #withPriority(int)} converts values with, {@code null} if this is
+	 * not a copy
+	 */
+	private final TagProcessor delegate;
 	protected AbstractTagProcessor(String tag, String...tags) {
-		this(toTags(tag));
+		this(toTags(tag, tags), null, DEFAULT_PRIORITY);
 	}
 	protected AbstractTagProcessor(Tag tag, Tag...tags) {
-		this(toSet(tag,tags));
+		this(toSet(tag,tags), null, DEFAULT_PRIORITY);
 	}
 	
-	private AbstractTagProcessor(Set<Tag> tags) {
-		this(toPredicate(Collections.unmodifiableSet(tags==null?Collections.emptySet():tags)));
+	/**
+	 * 
+	 * @param tagPredicate the tags this processor is compatible with, it has no
+	 *                     exact tags so it is only consulted for tags that no
+	 *                     processor declares exactly
+	 */
+	protected AbstractTagProcessor(Predicate<Tag> tagPredicate) {
+		this(null, tagPredicate!=null?tagPredicate:t->true, DEFAULT_PRIORITY);
 	}
 	
-	protected AbstractTagProcessor(Predicate<Tag> tagPredicate) {
-		compatibleTags=tagPredicate!=null?tagPredicate:t->true;
+	protected AbstractTagProcessor(Set<Tag> tags, Predicate<Tag> fallback, int priority) {
+		this(null, tags, fallback, priority);
 	}
 	
-	private static Predicate<Tag> toPredicate(Set<Tag> tags){
-		return tag->tags==null||tags.isEmpty()||tags.contains(tag);
+	private AbstractTagProcessor(TagProcessor delegate, Set<Tag> tags, Predicate<Tag> fallback, int priority) {
+		this.delegate=delegate;
+		this.tags=Collections.unmodifiableSet(tags==null?Collections.emptySet():new HashSet<Tag>(tags));
+		this.fallback=fallback;
+		this.priority=priority;
+		this.compatibleTags=toPredicate(this.tags, fallback);
+	}
+	
+	private static Predicate<Tag> toPredicate(Set<Tag> tags, Predicate<Tag> fallback){
+		if(fallback==null) {
+			return tag->tags.isEmpty()||tags.contains(tag);
+		}
+		return tag->tags.contains(tag)||fallback.test(tag);
 	}
 	
 	public AbstractTagProcessor withTags(Tag tag, Tag...tags) {
-		return new AbstractTagProcessor(this.getCompatibleTagsPredicate().or(toPredicate(toSet(tag, tags))));
+		return withTags(toSet(tag, tags));
 	}
 	
 	public AbstractTagProcessor withTags(String tag, String...tags) {
-		return new AbstractTagProcessor(this.getCompatibleTagsPredicate().or(toPredicate(toTags(tag, tags))));
+		return withTags(toTags(tag, tags));
+	}
+	
+	private AbstractTagProcessor withTags(Set<Tag> toAdd) {
+		Set<Tag> all = new HashSet<Tag>(this.tags);
+		all.addAll(toAdd);
+		return new AbstractTagProcessor(getDelegate(), all, this.fallback, this.priority);
+	}
+	
+	/**
+	 * 
+	 * @return a copy of this processor with the given priority, it still
+	 *         converts values the way this processor does
+	 */
+	public AbstractTagProcessor withPriority(int priority) {
+		return new AbstractTagProcessor(getDelegate(), this.tags, this.fallback, priority);
+	}
+	
+	private TagProcessor getDelegate() {
+		return this.delegate!=null?this.delegate:this;
 	}
 	
 	private static Set<Tag> toSet(Tag tag, Tag...tags){
@@ -61,6 +110,16 @@ public class AbstractTagProcessor implements TagProcessor{
 		return all.stream().map(Tag::new).collect(Collectors.toSet());
 	}
 
+	@Override
+	public Set<Tag> getTags() {
+		return this.tags;
+	}
+	
+	@Override
+	public int getPriority() {
+		return this.priority;
+	}
+
 	@Override
 	public boolean isCompatible(Tag t) {
 		if(getCompatibleTagsPredicate()==null) {
@@ -72,6 +131,9 @@ public class AbstractTagProcessor implements TagProcessor{
 	
 	@Override
 	public ConfigValue apply(ConfigOrigin origin, String strValue, ConfigIncludeContext includeContext) {
+		if(this.delegate!=null) {
+			return this.delegate.apply(origin, strValue, includeContext);
+		}
 		return ConfigValueFactory.fromAnyRef(strValue);
 	}
 	protected Predicate<Tag> getCompatibleTagsPredicate(){
@@ -0,0 +1,44 @@
+package com.jamesratzlaff.yaml.spi.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.jamesratzlaff.yaml.spi.TagProcessor;
+
+/**
+ * The processors that ship with this library, created directly so they are
+ * available without scanning the classpath with a
+ * {@link java.util.ServiceLoader}. Keep this in step with
+ * {@code META-INF/services/com.jamesratzlaff.yaml.spi.TagProcessor}.
+ * 
+ * @author jamesratzlaff
+ *
+ */
+public final class BuiltInTagProcessors {
+	private static final Set<Class<?>> TYPES = Collections.unmodifiableSet(new HashSet<Class<?>>(
+			Arrays.asList(BooleanTagProcessor.class, FloatTagProcessor.class, IntTagProcessor.class,
+					NullTagProcessor.class, StringTagProcessor.class, IncludeTagProcessor.class)));
+
+	private BuiltInTagProcessors() {
+		throw new UnsupportedOperationException("This constructor is private");
+	}
+
+	/**
+	 * @return a new instance of every built-in processor
+	 */
+	public static List<TagProcessor> create() {
+		return Arrays.asList(new BooleanTagProcessor(), new FloatTagProcessor(), new IntTagProcessor(),
+				new NullTagProcessor(), new StringTagProcessor(), new IncludeTagProcessor());
+	}
+
+	/**
+	 * @return {@code true} if {@code type} is one of the built-in processors
+	 */
+	public static boolean isBuiltIn(Class<?> type) {
+		return TYPES.contains(type);
+	}
+
+}
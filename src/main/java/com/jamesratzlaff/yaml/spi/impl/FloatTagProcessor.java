@@ -4,16 +4,19 @@ import java.math.BigDecimal;
 
 import org.yaml.snakeyaml.nodes.Tag;
 
+import com.typesafe.config.ConfigException;
 import com.typesafe.config.ConfigIncludeContext;
 import com.typesafe.config.ConfigOrigin;
 import com.typesafe.config.ConfigValue;
 import com.typesafe.config.ConfigValueFactory;
 
 public class FloatTagProcessor extends AbstractTagProcessor{
-	private static final BigDecimal MIN_FLOAT=BigDecimal.valueOf(Float.MIN_VALUE);
-	private static final BigDecimal MAX_FLOAT=BigDecimal.valueOf(Float.MAX_VALUE);
-	private static final BigDecimal MIN_DOUBLE=BigDecimal.valueOf(Double.MIN_VALUE);
-	private static final BigDecimal MAX_DOUBLE=BigDecimal.valueOf(Double.MAX_VALUE);
+	/**
+	 * Any decimal with at most this many significant digits is the same value
+	 * after a round trip through a {@code double}
+	 */
+	private static final int DOUBLE_DIGITS = 15;
+	private static final BigDecimal SIXTY = BigDecimal.valueOf(60);
 	
 	public FloatTagProcessor() {
 		super(Tag.FLOAT);
@@ -21,8 +24,157 @@ public class FloatTagProcessor extends AbstractTagProcessor{
 	
 	@Override
 	public ConfigValue apply(ConfigOrigin origin, String value, ConfigIncludeContext includeContext) {
-		BigDecimal floatVal = new BigDecimal(value);
-		return ConfigValueFactory.fromAnyRef(floatVal);
+		try {
+			return ConfigValueFactory.fromAnyRef(parse(value));
+		} catch (NumberFormatException e) {
+			throw new ConfigException.Parse(origin, "'"+value+"' is not a float", e);
+		}
+	}
+	
+	/**
+	 * Parses any of the yaml 1.1 float forms: decimals with an optional exponent
+	 * and {@code _} separators, base 60 ({@code 1:30.5}), {@code .inf},
+	 * {@code -.inf} and {@code .nan}.
+	 * 
+	 * @return a {@link Double} if the value survives the trip through one
+	 *         unchanged, otherwise a {@link BigDecimal}
+	 * @throws NumberFormatException if {@code value} is not a float
+	 */
+	public static Number parse(String value) {
+		String s = value.indexOf('_') > -1 ? withoutSeparators(value) : value;
+		int length = s.length();
+		int start = 0;
+		boolean negative = false;
+		if (length > 0 && (s.charAt(0) == '-' || s.charAt(0) == '+')) {
+			negative = s.charAt(0) == '-';
+			start = 1;
+		}
+		if (isSpecial(s, start, "inf", "Inf", "INF")) {
+			return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+		}
+		if (start == 0 && isSpecial(s, start, "nan", "NaN", "NAN")) {
+			return Double.NaN;
+		}
+		if (s.indexOf(':', start) > -1) {
+			return parseSexagesimal(s, start, negative);
+		}
+		int digits = 0;
+		int first = -1;
+		int last = -1;
+		boolean hasPoint = false;
+		for (int i = start; i < length; i++) {
+			char c = s.charAt(i);
+			if (c >= '0' && c <= '9') {
+				if (c != '0') {
+					if (first < 0) {
+						first = digits;
+					}
+					last = digits;
+				}
+				digits++;
+			} else if (c == '.' && !hasPoint) {
+				hasPoint = true;
+			} else if ((c == 'e' || c == 'E') && digits > 0 && isExponent(s, i + 1)) {
+				break;
+			} else {
+				throw new NumberFormatException("'" + value + "' is not a float");
+			}
+		}
+		if (digits == 0) {
+			throw new NumberFormatException("'" + value + "' is not a float");
+		}
+		if (first < 0 || last - first < DOUBLE_DIGITS) {
+			double asDouble = Double.parseDouble(s);
+			if (first < 0 ? asDouble == 0 : isNormal(asDouble)) {
+				return asDouble;
+			}
+		}
+		return new BigDecimal(s);
+	}
+	
+	private static boolean isNormal(double value) {
+		double magnitude = Math.abs(value);
+		return magnitude >= Double.MIN_NORMAL && magnitude <= Double.MAX_VALUE;
+	}
+	
+	private static boolean isSpecial(String s, int from, String... forms) {
+		if (s.length() - from != 4 || s.charAt(from) != '.') {
+			return false;
+		}
+		for (String form : forms) {
+			if (s.regionMatches(from + 1, form, 0, 3)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private static boolean isExponent(String s, int from) {
+		if (from < s.length() && (s.charAt(from) == '-' || s.charAt(from) == '+')) {
+			from++;
+		}
+		if (from == s.length()) {
+			return false;
+		}
+		for (int i = from; i < s.length(); i++) {
+			if (s.charAt(i) < '0' || s.charAt(i) > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static String withoutSeparators(String value) {
+		StringBuilder digits = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c != '_') {
+				digits.append(c);
+			}
+		}
+		return digits.toString();
+	}
+	
+	/**
+	 * {@code 1:30.5} is 90.5, each {@code :} separated part after the first is a
+	 * base 60 digit and the last one may have a fraction
+	 */
+	private static Number parseSexagesimal(String s, int start, boolean negative) {
+		String[] parts = s.substring(start).split(":", -1);
+		BigDecimal result = BigDecimal.ZERO;
+		for (int i = 0; i < parts.length; i++) {
+			String part = parts[i];
+			boolean isLast = i == parts.length - 1;
+			if (part.isEmpty() || !isSexagesimalPart(part, isLast)) {
+				throw new NumberFormatException("'" + s + "' is not a float");
+			}
+			BigDecimal partValue = new BigDecimal(part.endsWith(".") ? part + "0" : part);
+			if (i > 0 && partValue.compareTo(SIXTY) >= 0) {
+				throw new NumberFormatException("'" + s + "' is not a float");
+			}
+			result = i == 0 ? partValue : result.multiply(SIXTY).add(partValue);
+		}
+		if (negative) {
+			result = result.negate();
+		}
+		double asDouble = result.doubleValue();
+		if (result.signum() == 0 || (isNormal(asDouble) && result.stripTrailingZeros().precision() <= DOUBLE_DIGITS)) {
+			return asDouble;
+		}
+		return result;
+	}
+	
+	private static boolean isSexagesimalPart(String part, boolean mayHaveFraction) {
+		boolean hasPoint = false;
+		for (int i = 0; i < part.length(); i++) {
+			char c = part.charAt(i);
+			if (c == '.' && mayHaveFraction && !hasPoint && i > 0) {
+				hasPoint = true;
+			} else if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return true;
 	}
 	
 }
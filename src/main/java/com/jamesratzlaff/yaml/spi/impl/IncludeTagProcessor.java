@@ -1,19 +1,22 @@
 package com.jamesratzlaff.yaml.spi.impl;
 
+import org.yaml.snakeyaml.nodes.Tag;
+
+import com.jamesratzlaff.yaml.spi.impl.service.IncludeResolver;
 import com.typesafe.config.ConfigIncludeContext;
 import com.typesafe.config.ConfigOrigin;
 import com.typesafe.config.ConfigValue;
-import com.typesafe.config.impl.ConfigImplementationsAccessor;
 
 public class IncludeTagProcessor extends AbstractTagProcessor{
+	public static final Tag TAG = new Tag("!include");
 
 	public IncludeTagProcessor() {
-		super("!include");
+		super(TAG);
 	}
 
 	@Override
 	public ConfigValue apply(ConfigOrigin origin, String strValue, ConfigIncludeContext includeContext) {
-		return ConfigImplementationsAccessor.include(includeContext, strValue);
+		return IncludeResolver.include(origin, includeContext, strValue);
 	}
 	
 }
@@ -4,17 +4,14 @@ import java.math.BigInteger;
 
 import org.yaml.snakeyaml.nodes.Tag;
 
+import com.typesafe.config.ConfigException;
 import com.typesafe.config.ConfigIncludeContext;
 import com.typesafe.config.ConfigOrigin;
 import com.typesafe.config.ConfigValue;
 import com.typesafe.config.ConfigValueFactory;
 
 public class IntTagProcessor extends AbstractTagProcessor{
-	private static final BigInteger MAX_INT = BigInteger.valueOf(Integer.MAX_VALUE);
-	private static final BigInteger MIN_INT = BigInteger.valueOf(Integer.MIN_VALUE);
-	private static final BigInteger MAX_LONG = BigInteger.valueOf(Long.MAX_VALUE);
-	private static final BigInteger MIN_LONG = BigInteger.valueOf(Long.MIN_VALUE);
-	
+	private static final BigInteger SIXTY = BigInteger.valueOf(60);
 	
 	public IntTagProcessor() {
 		super(Tag.INT);
@@ -22,13 +19,151 @@ public class IntTagProcessor extends AbstractTagProcessor{
 
 	@Override
 	public ConfigValue apply(ConfigOrigin origin, String strValue, ConfigIncludeContext includeContext) {
-		BigInteger intVal = new BigInteger(strValue);
-		if(intVal.compareTo(MAX_INT)<=0&&intVal.compareTo(MIN_INT)>=0) {
-			return ConfigValueFactory.fromAnyRef(intVal.intValue());
-		} else if(intVal.compareTo(MAX_LONG)<=0&&intVal.compareTo(MIN_LONG)>=0) {
-			return ConfigValueFactory.fromAnyRef(intVal.longValue());
+		try {
+			return ConfigValueFactory.fromAnyRef(parse(strValue));
+		} catch (NumberFormatException e) {
+			throw new ConfigException.Parse(origin, "'"+strValue+"' is not an int", e);
+		}
+	}
+	
+	/**
+	 * Parses any of the yaml 1.1 int forms: decimal, {@code 0b} binary,
+	 * {@code 0x} hex, octal with a leading {@code 0} (or {@code 0o}) and base 60
+	 * ({@code 1:30}), each with an optional sign and {@code _} separators. The
+	 * digits are accumulated in a {@code long}, a {@link BigInteger} is only
+	 * created if the value doesn't fit in one.
+	 * 
+	 * @return the value as an {@link Integer} if it fits in one, otherwise a
+	 *         {@link Long} if it fits in one, otherwise a {@link BigInteger}
+	 * @throws NumberFormatException if {@code value} is not an int
+	 */
+	public static Number parse(String value) {
+		int length = value.length();
+		int start = 0;
+		boolean negative = false;
+		if (length > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+			negative = value.charAt(0) == '-';
+			start = 1;
+		}
+		int radix = 10;
+		if (length - start > 1 && value.charAt(start) == '0') {
+			char prefix = value.charAt(start + 1);
+			if (prefix == 'x' || prefix == 'X') {
+				radix = 16;
+				start += 2;
+			} else if (prefix == 'b' || prefix == 'B') {
+				radix = 2;
+				start += 2;
+			} else if (prefix == 'o' || prefix == 'O') {
+				radix = 8;
+				start += 2;
+			} else {
+				radix = 8;
+				start += 1;
+			}
+		}
+		if (radix == 10 && value.indexOf(':', start) > -1) {
+			return parseSexagesimal(value, start, negative);
+		}
+		// accumulated negatively, like Long.parseLong, so Long.MIN_VALUE fits
+		long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+		long multiplyLimit = limit / radix;
+		long result = 0;
+		boolean hasDigits = false;
+		for (int i = start; i < length; i++) {
+			char c = value.charAt(i);
+			if (c == '_') {
+				continue;
+			}
+			int digit = Character.digit(c, radix);
+			if (digit < 0) {
+				throw new NumberFormatException("'" + value + "' is not an int");
+			}
+			hasDigits = true;
+			if (result < multiplyLimit || result * radix < limit + digit) {
+				return toBigInteger(value, start, radix, negative);
+			}
+			result = result * radix - digit;
+		}
+		if (!hasDigits) {
+			// a lone 0 is decimal, anything else needs digits after its prefix
+			if (radix != 8 || start != length || value.charAt(length - 1) != '0') {
+				throw new NumberFormatException("'" + value + "' is not an int");
+			}
+		}
+		return toNumber(negative ? result : -result);
+	}
+	
+	private static Number toNumber(long value) {
+		int asInt = (int) value;
+		if (asInt == value) {
+			return Integer.valueOf(asInt);
+		}
+		return Long.valueOf(value);
+	}
+	
+	private static BigInteger toBigInteger(String value, int start, int radix, boolean negative) {
+		BigInteger result = new BigInteger(withoutSeparators(value, start, value.length()), radix);
+		return negative ? result.negate() : result;
+	}
+	
+	private static String withoutSeparators(String value, int from, int to) {
+		StringBuilder digits = new StringBuilder(to - from);
+		for (int i = from; i < to; i++) {
+			char c = value.charAt(i);
+			if (c != '_') {
+				digits.append(c);
+			}
+		}
+		return digits.toString();
+	}
+	
+	/**
+	 * {@code 1:30:00} is 5400, each {@code :} separated part after the first
+	 * is a base 60 digit
+	 */
+	private static Number parseSexagesimal(String value, int start, boolean negative) {
+		long result = 0;
+		int from = start;
+		try {
+			while (from <= value.length()) {
+				int to = value.indexOf(':', from);
+				if (to < 0) {
+					to = value.length();
+				}
+				long part = parseDecimal(value, from, to, from != start);
+				result = Math.addExact(from == start ? 0 : Math.multiplyExact(result, 60), part);
+				from = to + 1;
+			}
+		} catch (ArithmeticException e) {
+			BigInteger big = BigInteger.ZERO;
+			for (String part : value.substring(start).split(":")) {
+				big = big.multiply(SIXTY).add(new BigInteger(withoutSeparators(part, 0, part.length())));
+			}
+			return negative ? big.negate() : big;
+		}
+		return toNumber(negative ? -result : result);
+	}
+	
+	private static long parseDecimal(String value, int from, int to, boolean baseSixtyDigit) {
+		long result = 0;
+		boolean hasDigits = false;
+		for (int i = from; i < to; i++) {
+			char c = value.charAt(i);
+			if (c == '_' && !baseSixtyDigit) {
+				continue;
+			}
+			int digit = Character.digit(c, 10);
+			if (digit < 0) {
+				throw new NumberFormatException("'" + value + "' is not an int");
+			}
+			hasDigits = true;
+			result = Math.addExact(Math.multiplyExact(result, 10), digit);
+		}
+		if (!hasDigits || (baseSixtyDigit && result > 59)) {
+			throw new NumberFormatException("'" + value + "' is not an int");
 		}
-		return ConfigValueFactory.fromAnyRef(intVal);
+		return result;
 	}
 	
 	
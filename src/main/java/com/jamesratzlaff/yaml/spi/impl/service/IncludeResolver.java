@@ -0,0 +1,415 @@
+package com.jamesratzlaff.yaml.spi.impl.service;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.jamesratzlaff.typesafe.YAML_CONF;
+import com.typesafe.config.ConfigException;
+import com.typesafe.config.ConfigIncludeContext;
+import com.typesafe.config.ConfigObject;
+import com.typesafe.config.ConfigOrigin;
+import com.typesafe.config.ConfigParseable;
+import com.typesafe.config.impl.ConfigImplementationsAccessor;
+
+/**
+ * Resolves {@code !include}s for a single top level load. Each included
+ * resource is only parsed once no matter how many times it is included, an
+ * include cycle fails with a {@link ConfigException.Parse} that names the
+ * chain of includes instead of overflowing the stack, and which resource
+ * included which is recorded in {@link #getIncludeGraph()}.
+ * <p>
+ * A load is bracketed by {@link #begin(ConfigOrigin)} and {@link #end()}, any
+ * yaml parsed while a load is in progress on the same thread (which is how
+ * typesafe config parses included yaml files) is part of that load.
+ * <p>
+ * When the {@value YAML_CONF#INCLUDE_PREFETCH_THREADS_PROPERTY} system
+ * property is set the includes of a document can be {@link #prefetch(ConfigIncludeContext, Collection) prefetched}
+ * in parallel, the conversion then picks up each prefetched result in document
+ * order.
+ *
+ * @author jamesratzlaff
+ *
+ */
+public class IncludeResolver {
+	private static final ThreadLocal<IncludeResolver> CURRENT = new ThreadLocal<IncludeResolver>();
+	private static volatile Map<String, Set<String>> lastIncludeGraph = Collections.emptyMap();
+
+	private final Map<String, CompletableFuture<ConfigObject>> resolved;
+	private final Map<String, Set<String>> includeGraph;
+	private final Deque<String> chain;
+	private final boolean prefetching;
+	private final boolean worker;
+	private int depth;
+
+	private IncludeResolver(String root) {
+		this.resolved = new ConcurrentHashMap<String, CompletableFuture<ConfigObject>>();
+		this.includeGraph = new LinkedHashMap<String, Set<String>>();
+		this.chain = new ArrayDeque<String>();
+		this.prefetching = Prefetcher.isEnabled();
+		this.worker = false;
+		if (root != null) {
+			chain.addLast(root);
+		}
+	}
+
+	/**
+	 * The resolver a prefetch runs under, it shares everything resolved so far
+	 * but has its own include chain and never waits on another prefetch
+	 */
+	private IncludeResolver(IncludeResolver parent, String key) {
+		this.resolved = parent.resolved;
+		this.includeGraph = parent.includeGraph;
+		this.chain = new ArrayDeque<String>(parent.chain);
+		this.chain.addLast(key);
+		this.prefetching = false;
+		this.worker = true;
+		this.depth = 1;
+	}
+
+	/**
+	 * The resolver another thread converting part of the same load runs under,
+	 * it shares everything resolved so far but has its own copy of the include
+	 * chain of {@code parent}, which must not change while it is copied
+	 */
+	private IncludeResolver(IncludeResolver parent) {
+		this.resolved = parent.resolved;
+		this.includeGraph = parent.includeGraph;
+		this.chain = new ArrayDeque<String>(parent.chain);
+		this.prefetching = false;
+		this.worker = parent.worker;
+		this.depth = 1;
+	}
+
+	/**
+	 * Runs {@code task} on this thread as part of the load {@code parent} belongs
+	 * to, used to hand a load over to the threads converting parts of it
+	 *
+	 * @param parent the resolver of the load, from {@link #fork()}, or
+	 *               {@code null} if there isn't one
+	 */
+	public static <T> T within(IncludeResolver parent, Supplier<T> task) {
+		if (parent == null || parent == CURRENT.get()) {
+			return task.get();
+		}
+		IncludeResolver previous = CURRENT.get();
+		CURRENT.set(new IncludeResolver(parent));
+		try {
+			return task.get();
+		} finally {
+			if (previous != null) {
+				CURRENT.set(previous);
+			} else {
+				CURRENT.remove();
+			}
+		}
+	}
+
+	/**
+	 * @return the resolver of the load in progress on this thread, or
+	 *         {@code null} if there isn't one
+	 */
+	public static IncludeResolver current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Snapshots the load in progress on this thread before it is split across
+	 * threads. The include chain is copied here, on the thread that changes it,
+	 * and the copy is never changed, so any number of threads (this one
+	 * included) can start from it with {@link #within(IncludeResolver, Supplier)}.
+	 *
+	 * @return the snapshot, or {@code null} if there is no load in progress
+	 */
+	public static IncludeResolver fork() {
+		IncludeResolver current = CURRENT.get();
+		return current != null ? new IncludeResolver(current) : null;
+	}
+
+	/**
+	 * Starts a top level load on this thread, or joins the one that is already
+	 * in progress. Every call must be matched by a call to {@link #end()} on the
+	 * returned resolver.
+	 *
+	 * @param origin the origin of the source being loaded, used to find cycles
+	 *               that lead back to it
+	 */
+	public static IncludeResolver begin(ConfigOrigin origin) {
+		IncludeResolver resolver = CURRENT.get();
+		if (resolver == null) {
+			resolver = new IncludeResolver(origin != null ? keyOf(origin) : null);
+			CURRENT.set(resolver);
+		}
+		resolver.depth++;
+		return resolver;
+	}
+
+	/**
+	 * Ends this thread's part in the load, when the top level load ends its
+	 * include graph becomes the {@link #getLastIncludeGraph()}
+	 */
+	public void end() {
+		if (--depth == 0) {
+			CURRENT.remove();
+			lastIncludeGraph = getIncludeGraph();
+		}
+	}
+
+	/**
+	 * Includes {@code name} as part of the load in progress on this thread, or
+	 * as a load of its own if there isn't one
+	 */
+	public static ConfigObject include(ConfigOrigin origin, ConfigIncludeContext includeContext, String name) {
+		IncludeResolver resolver = begin(null);
+		try {
+			return resolver.resolve(origin, includeContext, name);
+		} finally {
+			resolver.end();
+		}
+	}
+
+	/**
+	 * Starts loading each of {@code names} in the background if prefetching is
+	 * enabled and a top level load is in progress on this thread, otherwise
+	 * does nothing. Failures are not reported until the include is resolved.
+	 */
+	public static void prefetch(ConfigIncludeContext includeContext, Collection<String> names) {
+		IncludeResolver resolver = CURRENT.get();
+		if (resolver != null && resolver.prefetching) {
+			for (String name : names) {
+				resolver.prefetch(includeContext, name);
+			}
+		}
+	}
+
+	private void prefetch(ConfigIncludeContext includeContext, String name) {
+		String key = keyOf(includeContext, name);
+		if (resolved.containsKey(key) || chain.contains(key)) {
+			return;
+		}
+		IncludeResolver worker = new IncludeResolver(this, key);
+		resolved.computeIfAbsent(key, k -> CompletableFuture.supplyAsync(() -> {
+			CURRENT.set(worker);
+			try {
+				return ConfigImplementationsAccessor.include(includeContext, name);
+			} finally {
+				CURRENT.remove();
+			}
+		}, Prefetcher.EXECUTOR));
+	}
+
+	/**
+	 *
+	 * @param origin         the origin of the {@code !include} scalar
+	 * @param includeContext the context to resolve {@code name} against
+	 * @param name           the resource to include
+	 * @return the included object, parsed at most once per load
+	 */
+	public ConfigObject resolve(ConfigOrigin origin, ConfigIncludeContext includeContext, String name) {
+		String key = keyOf(includeContext, name);
+		String includer = chain.peekLast();
+		if (includer != null) {
+			synchronized (includeGraph) {
+				includeGraph.computeIfAbsent(includer, k -> new LinkedHashSet<String>()).add(key);
+			}
+		}
+		if (chain.contains(key)) {
+			throw new ConfigException.Parse(origin, "include cycle " + describeCycle(key));
+		}
+		CompletableFuture<ConfigObject> included = resolved.get(key);
+		// a prefetch waiting on another prefetch could deadlock, so a prefetch
+		// resolves anything that is not done yet itself
+		if (included != null && (included.isDone() || !worker)) {
+			return join(included);
+		}
+		chain.addLast(key);
+		ConfigObject result;
+		try {
+			result = ConfigImplementationsAccessor.include(includeContext, name);
+		} finally {
+			chain.removeLast();
+		}
+		resolved.putIfAbsent(key, CompletableFuture.completedFuture(result));
+		return result;
+	}
+
+	private static ConfigObject join(CompletableFuture<ConfigObject> included) {
+		try {
+			return included.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	private String describeCycle(String key) {
+		StringBuilder sb = new StringBuilder();
+		boolean inCycle = false;
+		for (Iterator<String> iter = chain.iterator(); iter.hasNext();) {
+			String link = iter.next();
+			inCycle = inCycle || link.equals(key);
+			if (inCycle) {
+				sb.append(link).append(" -> ");
+			}
+		}
+		return sb.append(key).toString();
+	}
+
+	/**
+	 * @return each resource that included something mapped to the resources it
+	 *         included, in the order they were first included
+	 */
+	public Map<String, Set<String>> getIncludeGraph() {
+		synchronized (includeGraph) {
+			Map<String, Set<String>> copy = new LinkedHashMap<String, Set<String>>(includeGraph.size());
+			includeGraph.forEach((k, v) -> copy.put(k, Collections.unmodifiableSet(new LinkedHashSet<String>(v))));
+			return Collections.unmodifiableMap(copy);
+		}
+	}
+
+	/**
+	 * @return every include this load has finished resolving, keyed by the
+	 *         resolved resource
+	 */
+	public Map<String, ConfigObject> getResolved() {
+		Map<String, ConfigObject> done = new LinkedHashMap<String, ConfigObject>();
+		resolved.forEach((key, included) -> {
+			if (included.isDone() && !included.isCompletedExceptionally()) {
+				done.put(key, included.join());
+			}
+		});
+		return done;
+	}
+
+	/**
+	 * Hands this load includes resolved by an earlier load so they aren't parsed
+	 * again. Only includes that are unchanged, and that include nothing that
+	 * changed, should be handed over.
+	 *
+	 * @param known        the includes to reuse, keyed by the resolved resource
+	 * @param includeGraph the include graph of the earlier load, the entries of
+	 *                     reused includes are carried over
+	 */
+	public void reuse(Map<String, ConfigObject> known, Map<String, Set<String>> includeGraph) {
+		known.forEach((key, included) -> resolved.putIfAbsent(key, CompletableFuture.completedFuture(included)));
+		synchronized (this.includeGraph) {
+			for (String key : known.keySet()) {
+				Set<String> direct = includeGraph.get(key);
+				if (direct != null) {
+					this.includeGraph.computeIfAbsent(key, k -> new LinkedHashSet<String>()).addAll(direct);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return every resource {@code origin} included, directly or through
+	 *         another include, during this load
+	 */
+	public Set<String> getIncludedBy(ConfigOrigin origin) {
+		Set<String> included = new LinkedHashSet<String>();
+		Deque<String> toVisit = new ArrayDeque<String>();
+		toVisit.add(keyOf(origin));
+		synchronized (includeGraph) {
+			while (!toVisit.isEmpty()) {
+				Set<String> direct = includeGraph.get(toVisit.pollFirst());
+				if (direct != null) {
+					for (String key : direct) {
+						if (included.add(key)) {
+							toVisit.addLast(key);
+						}
+					}
+				}
+			}
+		}
+		return included;
+	}
+
+	/**
+	 * Records that {@code origin} included {@code included} without resolving
+	 * them, for when the value of {@code origin} came from somewhere that had
+	 * already resolved its includes
+	 */
+	public void addIncludes(ConfigOrigin origin, Collection<String> included) {
+		if (!included.isEmpty()) {
+			synchronized (includeGraph) {
+				includeGraph.computeIfAbsent(keyOf(origin), k -> new LinkedHashSet<String>()).addAll(included);
+			}
+		}
+	}
+
+	/**
+	 * @return the include graph of the most recently finished top level load
+	 */
+	public static Map<String, Set<String>> getLastIncludeGraph() {
+		return lastIncludeGraph;
+	}
+
+	private static String keyOf(ConfigIncludeContext includeContext, String name) {
+		ConfigParseable parseable = includeContext != null ? includeContext.relativeTo(name) : null;
+		return parseable != null ? keyOf(parseable.origin()) : name;
+	}
+
+	private static String keyOf(ConfigOrigin origin) {
+		URL url = origin.url();
+		return url != null ? url.toExternalForm() : origin.description();
+	}
+
+	/**
+	 * Holds the bounded executor prefetches run on, it is only created if
+	 * prefetching is enabled
+	 */
+	private static final class Prefetcher {
+		private static final String THREAD_NAME_PREFIX = "yaml-include-";
+		private static final int THREADS = Integer.getInteger(YAML_CONF.INCLUDE_PREFETCH_THREADS_PROPERTY, 0);
+		private static final ExecutorService EXECUTOR = THREADS > 0
+				? Executors.newFixedThreadPool(THREADS, newThreadFactory())
+				: null;
+
+		static boolean isEnabled() {
+			return EXECUTOR != null;
+		}
+
+		/**
+		 * @return a factory of virtual threads when the jdk has them, otherwise of
+		 *         daemon platform threads
+		 */
+		private static ThreadFactory newThreadFactory() {
+			try {
+				// looked up on the public interfaces, the builder itself is a jdk internal class
+				Method name = Class.forName("java.lang.Thread$Builder$OfVirtual").getMethod("name", String.class,
+						long.class);
+				Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+				Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+				builder = name.invoke(builder, THREAD_NAME_PREFIX, 0L);
+				return (ThreadFactory) factory.invoke(builder);
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				AtomicInteger count = new AtomicInteger();
+				return runnable -> {
+					Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + count.getAndIncrement());
+					thread.setDaemon(true);
+					return thread;
+				};
+			}
+		}
+	}
+
+}
@@ -1,19 +1,34 @@
 package com.jamesratzlaff.yaml.spi.impl.service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.ServiceLoader;
-import java.util.stream.StreamSupport;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.yaml.snakeyaml.nodes.Node;
 import org.yaml.snakeyaml.nodes.ScalarNode;
 import org.yaml.snakeyaml.nodes.Tag;
 
+import com.jamesratzlaff.typesafe.YAML_CONF;
 import com.jamesratzlaff.yaml.spi.TagProcessor;
+import com.jamesratzlaff.yaml.spi.impl.BuiltInTagProcessors;
 import com.typesafe.config.ConfigIncludeContext;
 import com.typesafe.config.ConfigOrigin;
 import com.typesafe.config.ConfigValue;
 import com.typesafe.config.ConfigValueFactory;
 
 public class TagProcessorService {
+	private static final Logger LOGGER = Logger.getLogger(TagProcessorService.class.getName());
 	private static final TagProcessorService INSTANCE;
 	static {
 		INSTANCE=new TagProcessorService();
@@ -24,22 +39,96 @@ public class TagProcessorService {
 	}
 	
 	private final ServiceLoader<TagProcessor> tagProcessors;
+	/**
+	 * Iterating a {@link ServiceLoader} is not thread safe, so the providers are
+	 * loaded once into a registry that is replaced as a whole whenever a
+	 * processor is registered or unregistered
+	 */
+	private final AtomicReference<Registry> registry;
+	private volatile boolean discovered;
 	
+	/**
+	 * Starts out with just the {@link BuiltInTagProcessors}, the classpath is
+	 * only scanned for other processors the first time a tag comes up that none
+	 * of them handle and that isn't a standard yaml tag, or right away if
+	 * {@value YAML_CONF#EAGER_TAG_PROCESSORS_PROPERTY} is {@code true}
+	 */
 	private TagProcessorService() {
 		tagProcessors=ServiceLoader.load(TagProcessor.class);
-		tagProcessors.reload();
+		registry=new AtomicReference<Registry>(new Registry(BuiltInTagProcessors.create(), false));
+		if(Boolean.getBoolean(YAML_CONF.EAGER_TAG_PROCESSORS_PROPERTY)) {
+			discover();
+		}
+	}
+	
+	/**
+	 * Adds every processor {@link #getServiceLoader()} finds that isn't built in
+	 */
+	private synchronized void discover() {
+		if(discovered) {
+			return;
+		}
+		List<TagProcessor> found = new ArrayList<TagProcessor>();
+		for(TagProcessor processor : tagProcessors) {
+			if(!BuiltInTagProcessors.isBuiltIn(processor.getClass())) {
+				found.add(processor);
+			}
+		}
+		registry.updateAndGet(current->current.with(found, true));
+		discovered=true;
 	}
 	
 	public ServiceLoader<TagProcessor> getServiceLoader(){
 		return this.tagProcessors;
 	}
 	
+	/**
+	 * 
+	 * @return every registered processor, highest priority first
+	 */
+	public List<TagProcessor> getTagProcessors(){
+		discover();
+		return registry.get().processors;
+	}
+	
+	/**
+	 * Adds {@code processor}, it takes over the tags it declares from any
+	 * processor with a lower priority
+	 */
+	public void register(TagProcessor processor) {
+		if(processor!=null) {
+			registry.updateAndGet(current->current.with(Collections.singletonList(processor), current.discovered));
+		}
+	}
+	
+	/**
+	 * Removes {@code processor}, the tags it handled fall back to the remaining
+	 * processors
+	 * 
+	 * @return {@code true} if {@code processor} was registered
+	 */
+	public boolean unregister(TagProcessor processor) {
+		Registry current = registry.get();
+		while(current.processors.contains(processor)) {
+			if(registry.compareAndSet(current, current.without(processor))) {
+				return true;
+			}
+			current=registry.get();
+		}
+		return false;
+	}
+	
 	private TagProcessor getProvider(Tag tag){
 		if(tag==null) {
 			tag=Tag.NULL;
 		}
-		Tag toUse = tag;
-		return StreamSupport.stream(getServiceLoader().spliterator(),false).filter(tProcessor->tProcessor.isCompatible(toUse)).findFirst().orElse(null);
+		TagProcessor provider = registry.get().get(tag);
+		// standard tags without a built-in processor are kept as strings rather than scanned for
+		if(provider==null && !discovered && !tag.startsWith(Tag.PREFIX)) {
+			discover();
+			provider=registry.get().get(tag);
+		}
+		return provider;
 	}
 	
 	public TagProcessor getTagProcessor(Tag tag) {
@@ -64,12 +153,117 @@ public class TagProcessorService {
 		if(tp!=null) {
 			return tp.apply(origin, n,includer);
 		} else if(n instanceof ScalarNode) {
-			System.out.println("unknown tag "+n.getTag());
 			return ConfigValueFactory.fromAnyRef(((ScalarNode)n).getValue());
 		}
 		return null;
 	}
 	
+	/**
+	 * 
+	 * @param origin the origin to hand to the {@link TagProcessor}
+	 * @param tag the resolved tag of the scalar
+	 * @param value the value of the scalar
+	 * @param includer the include context to hand to the {@link TagProcessor}
+	 * @return the converted value of the scalar
+	 */
+	public ConfigValue getConfigValue(ConfigOrigin origin, Tag tag, String value, ConfigIncludeContext includer) {
+		TagProcessor tp = getTagProcessor(tag);
+		if(tp!=null) {
+			return tp.apply(origin, value, includer);
+		}
+		return ConfigValueFactory.fromAnyRef(value);
+	}
+	
+	/**
+	 * The registered processors along with an index of the tags they declare.
+	 * Ties in priority are broken by class name so the winner doesn't depend
+	 * on the order providers are listed in {@code META-INF/services}.
+	 */
+	private static final class Registry {
+		private static final Comparator<TagProcessor> ORDER = Comparator
+				.comparingInt(TagProcessor::getPriority).reversed()
+				.thenComparing(processor->processor.getClass().getName());
+		
+		private final List<TagProcessor> processors;
+		/**
+		 * Whether the classpath has been scanned for {@link #processors}, until
+		 * it has a tag that isn't standard can't be said to have no processor
+		 */
+		private final boolean discovered;
+		private final Map<Tag, TagProcessor> declared;
+		/**
+		 * The processor each tag seen so far resolved to, tags without a
+		 * compatible processor map to {@link Optional#empty()}
+		 */
+		private final ConcurrentMap<Tag, Optional<TagProcessor>> resolved;
+		
+		Registry(List<TagProcessor> processors, boolean discovered){
+			List<TagProcessor> sorted = new ArrayList<TagProcessor>(processors);
+			sorted.sort(ORDER);
+			this.processors=Collections.unmodifiableList(sorted);
+			this.discovered=discovered;
+			this.declared=new HashMap<Tag, TagProcessor>();
+			for(int i=0;i<sorted.size();i++) {
+				TagProcessor processor = sorted.get(i);
+				for(Tag tag : processor.getTags()) {
+					declared.putIfAbsent(tag, processor);
+				}
+			}
+			this.resolved=new ConcurrentHashMap<Tag, Optional<TagProcessor>>();
+		}
+		
+		Registry with(Collection<TagProcessor> toAdd, boolean discovered) {
+			List<TagProcessor> all = new ArrayList<TagProcessor>(processors);
+			all.addAll(toAdd);
+			return new Registry(all, discovered);
+		}
+		
+		Registry without(TagProcessor processor) {
+			List<TagProcessor> remaining = new ArrayList<TagProcessor>(processors);
+			remaining.remove(processor);
+			return new Registry(remaining, discovered);
+		}
+		
+		TagProcessor get(Tag tag) {
+			Optional<TagProcessor> provider = resolved.get(tag);
+			if(provider==null) {
+				provider=resolved.computeIfAbsent(tag, this::find);
+			}
+			return provider!=null?provider.orElse(null):null;
+		}
+		
+		/**
+		 * Declared tags win, otherwise the first compatible processor in
+		 * priority order is used. A tag nothing handles is reported once, its
+		 * scalars are kept as strings.
+		 * 
+		 * @return {@code null}, which isn't cached, if nothing handles a tag that
+		 *         isn't standard and the classpath hasn't been scanned yet
+		 */
+		private Optional<TagProcessor> find(Tag tag){
+			TagProcessor processor = declared.get(tag);
+			if(processor!=null) {
+				return Optional.of(processor);
+			}
+			for(int i=0;i<processors.size();i++) {
+				processor = processors.get(i);
+				if(processor.isCompatible(tag)) {
+					return Optional.of(processor);
+				}
+			}
+			// standard yaml tags such as !!timestamp are expected to fall back to strings
+			boolean standard = tag.startsWith(Tag.PREFIX);
+			if(!standard && !discovered) {
+				return null;
+			}
+			Level level = standard ? Level.FINE : Level.WARNING;
+			if(LOGGER.isLoggable(level)) {
+				LOGGER.log(level, "No TagProcessor handles the tag {0}, its values are kept as strings", tag);
+			}
+			return Optional.empty();
+		}
+	}
+	
 	
 	
 	
@@ -1,7 +1,9 @@
 package com.typesafe.config.impl;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -14,6 +16,7 @@ import com.jamesratzlaff.util.SubstitutableValues;
 import com.typesafe.config.ConfigIncludeContext;
 import com.typesafe.config.ConfigObject;
 import com.typesafe.config.ConfigOrigin;
+import com.typesafe.config.ConfigParseOptions;
 import com.typesafe.config.ConfigValue;
 import com.typesafe.config.ConfigValueFactory;
 
@@ -74,11 +77,78 @@ public class ConfigImplementationsAccessor {
 		return toReturn;
 	}
 	
+	/**
+	 * @return an include context that resolves relative includes against {@code file}
+	 */
+	public static ConfigIncludeContext newIncludeContext(File file, ConfigParseOptions options) {
+		return new SimpleIncludeContext(Parseable.newFile(file, options));
+	}
+
+	/**
+	 * @return an include context for a source that has no location of its own
+	 */
+	public static ConfigIncludeContext newIncludeContext(String description, ConfigParseOptions options) {
+		return new SimpleIncludeContext(Parseable.newString("", options.setOriginDescription(description)));
+	}
+
 	public static ConfigObject include(ConfigIncludeContext includeContext, String name) {
 		return new SimpleIncluder(null).include(includeContext, name);
 	}
-	
-	
+
+	/**
+	 * @return a copy of {@code value} with the line number of its origin, and of
+	 *         the origins of everything in it, moved by {@code offset}.
+	 *         {@code value} itself if {@code offset} is 0, or {@code null} if it
+	 *         holds a concatenation, whose pieces' origins can't be moved.
+	 */
+	public static ConfigValue withLineOffset(ConfigValue value, int offset) {
+		if (offset == 0 || value == null) {
+			return value;
+		}
+		return withLineOffset((AbstractConfigValue) value, offset,
+				new IdentityHashMap<AbstractConfigValue, AbstractConfigValue>());
+	}
+
+	private static AbstractConfigValue withLineOffset(AbstractConfigValue value, int offset,
+			Map<AbstractConfigValue, AbstractConfigValue> moved) {
+		AbstractConfigValue result = moved.get(value);
+		if (result != null) {
+			return result;
+		}
+		ConfigOrigin origin = value.origin();
+		if (origin.lineNumber() > -1) {
+			origin = origin.withLineNumber(origin.lineNumber() + offset);
+		}
+		if (value instanceof ConfigConcatenation) {
+			return null;
+		} else if (value instanceof SimpleConfigObject) {
+			SimpleConfigObject object = (SimpleConfigObject) value;
+			Map<String, AbstractConfigValue> entries = new LinkedHashMap<String, AbstractConfigValue>(object.size());
+			for (Entry<String, ConfigValue> entry : object.entrySet()) {
+				AbstractConfigValue child = withLineOffset((AbstractConfigValue) entry.getValue(), offset, moved);
+				if (child == null) {
+					return null;
+				}
+				entries.put(entry.getKey(), child);
+			}
+			result = new SimpleConfigObject(origin, entries, object.resolveStatus(), object.ignoresFallbacks());
+		} else if (value instanceof SimpleConfigList) {
+			SimpleConfigList list = (SimpleConfigList) value;
+			List<AbstractConfigValue> items = new ArrayList<AbstractConfigValue>(list.size());
+			for (ConfigValue item : list) {
+				AbstractConfigValue child = withLineOffset((AbstractConfigValue) item, offset, moved);
+				if (child == null) {
+					return null;
+				}
+				items.add(child);
+			}
+			result = new SimpleConfigList(origin, items, list.resolveStatus());
+		} else {
+			result = value.withOrigin(origin);
+		}
+		moved.put(value, result);
+		return result;
+	}
 
 	public static List<ConfigValue> toConfigConcatenationValuesList(ConfigOrigin origin, List<SubstitutableValue> cs) {
 		List<ConfigValue> result = cs != null ? new ArrayList<ConfigValue>(cs.size()) : null;
@@ -0,0 +1,329 @@
+package com.typesafe.config.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.typesafe.config.ConfigOrigin;
+import com.typesafe.config.ConfigValue;
+
+/**
+ * Writes and reads a compact binary form of a {@link ConfigValue} tree. Unlike
+ * typesafe config's own serialization it also handles unresolved values
+ * ({@code ${}} references and concatenations), so a tree can be stored as it
+ * comes out of the yaml converter and resolved after it is read back. Origins
+ * are written as deltas from their parent's origin the same way typesafe
+ * config's serialization writes them.
+ *
+ * @author jamesratzlaff
+ *
+ */
+public final class ConfigValueCodec {
+	private static final byte NULL = 0;
+	private static final byte BOOLEAN = 1;
+	private static final byte INT = 2;
+	private static final byte LONG = 3;
+	private static final byte DOUBLE = 4;
+	private static final byte QUOTED_STRING = 5;
+	private static final byte UNQUOTED_STRING = 6;
+	private static final byte LIST = 7;
+	private static final byte OBJECT = 8;
+	private static final byte REFERENCE = 9;
+	private static final byte CONCATENATION = 10;
+	/**
+	 * Lengths and sizes are read from the input, so nothing larger than this is
+	 * allocated until the bytes to fill it have actually been read
+	 */
+	private static final int CHUNK_SIZE = 8192;
+
+	private static final Field CONCATENATION_PIECES = field(ConfigConcatenation.class, "pieces");
+	private static final Field REFERENCE_PREFIX_LENGTH = field(ConfigReference.class, "prefixLength");
+	private static final Constructor<ConfigReference> REFERENCE_CONSTRUCTOR = referenceConstructor();
+
+	private ConfigValueCodec() {
+		throw new UnsupportedOperationException("This constructor is private");
+	}
+
+	/**
+	 * @throws NotSerializableException if the tree holds a kind of value that can
+	 *                                  not be written, such as a delayed merge
+	 */
+	public static void write(DataOutput out, ConfigValue value) throws IOException {
+		write(out, (AbstractConfigValue) value, null, false);
+	}
+
+	/**
+	 * Writes every origin in {@code value} as a delta from {@code base}, reading
+	 * it back with a different base moves every origin that matched
+	 * {@code base} (other than its line number and comments) over to the new one
+	 */
+	public static void write(DataOutput out, ConfigValue value, ConfigOrigin base) throws IOException {
+		write(out, (AbstractConfigValue) value, (SimpleConfigOrigin) base, true);
+	}
+
+	public static ConfigValue read(DataInput in) throws IOException {
+		return read(in, null, false);
+	}
+
+	/**
+	 * @see #write(DataOutput, ConfigValue, ConfigOrigin)
+	 */
+	public static ConfigValue read(DataInput in, ConfigOrigin base) throws IOException {
+		return read(in, (SimpleConfigOrigin) base, true);
+	}
+
+	/**
+	 * @param fixedBase if {@code true} every origin is written as a delta from
+	 *                  {@code base}, otherwise each is a delta from its parent's
+	 */
+	private static void write(DataOutput out, AbstractConfigValue value, SimpleConfigOrigin base,
+			boolean fixedBase) throws IOException {
+		SimpleConfigOrigin origin = value.origin();
+		SimpleConfigOrigin childBase = fixedBase ? base : origin;
+		if (value instanceof ConfigNull) {
+			out.writeByte(NULL);
+		} else if (value instanceof ConfigBoolean) {
+			out.writeByte(BOOLEAN);
+		} else if (value instanceof ConfigInt) {
+			out.writeByte(INT);
+		} else if (value instanceof ConfigLong) {
+			out.writeByte(LONG);
+		} else if (value instanceof ConfigDouble) {
+			out.writeByte(DOUBLE);
+		} else if (value instanceof ConfigString.Quoted) {
+			out.writeByte(QUOTED_STRING);
+		} else if (value instanceof ConfigString.Unquoted) {
+			out.writeByte(UNQUOTED_STRING);
+		} else if (value instanceof SimpleConfigList) {
+			out.writeByte(LIST);
+		} else if (value instanceof SimpleConfigObject && !value.ignoresFallbacks()) {
+			out.writeByte(OBJECT);
+		} else if (value instanceof ConfigReference) {
+			out.writeByte(REFERENCE);
+		} else if (value instanceof ConfigConcatenation) {
+			out.writeByte(CONCATENATION);
+		} else {
+			throw new NotSerializableException(value.getClass().getName());
+		}
+		SerializedConfigValue.writeOrigin(out, origin, base);
+		if (value instanceof ConfigBoolean) {
+			out.writeBoolean(((ConfigBoolean) value).unwrapped());
+		} else if (value instanceof ConfigNumber) {
+			writeNumber(out, (ConfigNumber) value);
+		} else if (value instanceof ConfigString) {
+			writeString(out, ((ConfigString) value).unwrapped());
+		} else if (value instanceof SimpleConfigList) {
+			SimpleConfigList list = (SimpleConfigList) value;
+			out.writeInt(list.size());
+			for (ConfigValue item : list) {
+				write(out, (AbstractConfigValue) item, childBase, fixedBase);
+			}
+		} else if (value instanceof SimpleConfigObject) {
+			SimpleConfigObject object = (SimpleConfigObject) value;
+			out.writeInt(object.size());
+			for (String key : object.keySet()) {
+				writeString(out, key);
+				write(out, object.get(key), childBase, fixedBase);
+			}
+		} else if (value instanceof ConfigReference) {
+			SubstitutionExpression expression = ((ConfigReference) value).expression();
+			writeString(out, expression.path().render());
+			out.writeBoolean(expression.optional());
+			out.writeInt(getInt(REFERENCE_PREFIX_LENGTH, value));
+		} else if (value instanceof ConfigConcatenation) {
+			List<AbstractConfigValue> pieces = getPieces((ConfigConcatenation) value);
+			out.writeInt(pieces.size());
+			for (AbstractConfigValue piece : pieces) {
+				write(out, piece, childBase, fixedBase);
+			}
+		}
+	}
+
+	private static AbstractConfigValue read(DataInput in, SimpleConfigOrigin base, boolean fixedBase)
+			throws IOException {
+		byte type = in.readByte();
+		SimpleConfigOrigin origin = SerializedConfigValue.readOrigin(in, base);
+		SimpleConfigOrigin childBase = fixedBase ? base : origin;
+		switch (type) {
+		case NULL:
+			return new ConfigNull(origin);
+		case BOOLEAN:
+			return new ConfigBoolean(origin, in.readBoolean());
+		case INT: {
+			int value = in.readInt();
+			return new ConfigInt(origin, value, readOriginalText(in));
+		}
+		case LONG: {
+			long value = in.readLong();
+			return new ConfigLong(origin, value, readOriginalText(in));
+		}
+		case DOUBLE: {
+			double value = in.readDouble();
+			return new ConfigDouble(origin, value, readOriginalText(in));
+		}
+		case QUOTED_STRING:
+			return new ConfigString.Quoted(origin, readString(in));
+		case UNQUOTED_STRING:
+			return new ConfigString.Unquoted(origin, readString(in));
+		case LIST: {
+			int size = readSize(in);
+			List<AbstractConfigValue> items = new ArrayList<AbstractConfigValue>(Math.min(size, CHUNK_SIZE));
+			for (int i = 0; i < size; i++) {
+				items.add(read(in, childBase, fixedBase));
+			}
+			return new SimpleConfigList(origin, items);
+		}
+		case OBJECT: {
+			int size = readSize(in);
+			Map<String, AbstractConfigValue> entries = new LinkedHashMap<String, AbstractConfigValue>(
+					Math.min(size, CHUNK_SIZE));
+			for (int i = 0; i < size; i++) {
+				String key = readString(in);
+				entries.put(key, read(in, childBase, fixedBase));
+			}
+			return new SimpleConfigObject(origin, entries);
+		}
+		case REFERENCE: {
+			Path path = PathParser.parsePath(readString(in));
+			boolean optional = in.readBoolean();
+			int prefixLength = in.readInt();
+			return newReference(origin, new SubstitutionExpression(path, optional), prefixLength);
+		}
+		case CONCATENATION: {
+			int size = readSize(in);
+			List<AbstractConfigValue> pieces = new ArrayList<AbstractConfigValue>(Math.min(size, CHUNK_SIZE));
+			for (int i = 0; i < size; i++) {
+				pieces.add(read(in, childBase, fixedBase));
+			}
+			return new ConfigConcatenation(origin, pieces);
+		}
+		default:
+			throw new StreamCorruptedException("unknown value type " + type);
+		}
+	}
+
+	private static void writeNumber(DataOutput out, ConfigNumber number) throws IOException {
+		if (number instanceof ConfigInt) {
+			out.writeInt(((ConfigInt) number).unwrapped());
+		} else if (number instanceof ConfigLong) {
+			out.writeLong(((ConfigLong) number).unwrapped());
+		} else {
+			out.writeDouble(((ConfigDouble) number).unwrapped());
+		}
+		out.writeBoolean(number.originalText != null);
+		if (number.originalText != null) {
+			writeString(out, number.originalText);
+		}
+	}
+
+	private static String readOriginalText(DataInput in) throws IOException {
+		return in.readBoolean() ? readString(in) : null;
+	}
+
+	/**
+	 * {@link DataOutput#writeUTF(String)} can't handle strings longer than 64k
+	 */
+	private static void writeString(DataOutput out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * A corrupt length fails with an {@link java.io.EOFException} once the input
+	 * runs out rather than allocating whatever the length claims up front
+	 */
+	private static String readString(DataInput in) throws IOException {
+		int length = readSize(in);
+		if (length <= CHUNK_SIZE) {
+			byte[] bytes = new byte[length];
+			in.readFully(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(CHUNK_SIZE);
+		byte[] chunk = new byte[CHUNK_SIZE];
+		for (int remaining = length; remaining > 0; remaining -= chunk.length) {
+			if (remaining < chunk.length) {
+				chunk = new byte[remaining];
+			}
+			in.readFully(chunk);
+			bytes.write(chunk);
+		}
+		return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static int readSize(DataInput in) throws IOException {
+		int size = in.readInt();
+		if (size < 0) {
+			throw new StreamCorruptedException("negative length " + size);
+		}
+		return size;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<AbstractConfigValue> getPieces(ConfigConcatenation concatenation) throws IOException {
+		try {
+			return (List<AbstractConfigValue>) CONCATENATION_PIECES.get(concatenation);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			throw notSerializable(concatenation, e);
+		}
+	}
+
+	private static int getInt(Field field, AbstractConfigValue value) throws IOException {
+		try {
+			return field.getInt(value);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			throw notSerializable(value, e);
+		}
+	}
+
+	private static ConfigReference newReference(SimpleConfigOrigin origin, SubstitutionExpression expression,
+			int prefixLength) throws IOException {
+		if (prefixLength == 0) {
+			return new ConfigReference(origin, expression);
+		}
+		try {
+			return REFERENCE_CONSTRUCTOR.newInstance(origin, expression, prefixLength);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			throw new IOException("could not create a reference to " + expression, e);
+		}
+	}
+
+	private static NotSerializableException notSerializable(AbstractConfigValue value, Exception cause) {
+		NotSerializableException e = new NotSerializableException(value.getClass().getName());
+		e.initCause(cause);
+		return e;
+	}
+
+	private static Field field(Class<?> type, String name) {
+		try {
+			Field field = type.getDeclaredField(name);
+			field.setAccessible(true);
+			return field;
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	private static Constructor<ConfigReference> referenceConstructor() {
+		try {
+			Constructor<ConfigReference> constructor = ConfigReference.class.getDeclaredConstructor(ConfigOrigin.class,
+					SubstitutionExpression.class, int.class);
+			constructor.setAccessible(true);
+			return constructor;
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+}
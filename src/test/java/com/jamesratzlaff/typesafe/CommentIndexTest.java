@@ -0,0 +1,101 @@
+package com.jamesratzlaff.typesafe;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.jamesratzlaff.typesafe.CommentReader.Comment;
+
+public class CommentIndexTest {
+
+	private static Comment prefixed(int lineNo, int lines, String... text) {
+		return new Comment(null, lineNo, 0, null, lines, 0, Arrays.asList(text), false);
+	}
+
+	private static Comment inline(int lineNo, String... text) {
+		return new Comment(null, lineNo, 10, null, 0, 0, Arrays.asList(text), true);
+	}
+
+	@Test
+	public void findsPrefixedCommentsByTheLineAfterThem() {
+		Comment comment = prefixed(2, 1, "first", "second");
+		CommentIndex index = new CommentIndex(Collections.singletonList(comment));
+		assertSame(comment, index.getPrefixed(4));
+		assertNull(index.getPrefixed(3));
+		assertNull(index.getInline(2));
+	}
+
+	@Test
+	public void findsInlineCommentsByTheirOwnLine() {
+		Comment comment = inline(5, "inline");
+		CommentIndex index = new CommentIndex(Collections.singletonList(comment));
+		assertSame(comment, index.getInline(5));
+		assertNull(index.getInline(4));
+		assertNull(index.getInline(6));
+	}
+
+	@Test
+	public void keepsTheFirstCommentForALine() {
+		Comment first = inline(1, "first");
+		Comment second = inline(1, "second");
+		CommentIndex index = new CommentIndex(Arrays.asList(first, second));
+		assertSame(first, index.getInline(1));
+	}
+
+	@Test
+	public void returnsNothingOutsideOfTheIndexedLines() {
+		CommentIndex index = new CommentIndex(Collections.singletonList(inline(3, "x")));
+		assertNull(index.getInline(-1));
+		assertNull(index.getInline(1000));
+		assertNull(index.getPrefixed(-1));
+		assertNull(index.getPrefixed(1000));
+		CommentIndex empty = new CommentIndex(null);
+		assertNull(empty.getPrefixed(0));
+		assertNull(empty.getInline(0));
+	}
+
+	@Test
+	public void agreesWithALinearScanOverScannedComments() {
+		StringBuilder yaml = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			if (i % 3 == 0) {
+				yaml.append("# about k").append(i).append('\n');
+			}
+			yaml.append("k").append(i).append(": ").append(i);
+			if (i % 5 == 0) {
+				yaml.append(" # inline ").append(i);
+			}
+			yaml.append('\n');
+		}
+		List<Comment> comments = CommentReader.readComments(null, YamlSource.of(yaml.toString()), null);
+		CommentIndex index = new CommentIndex(comments);
+		for (int line = 0; line < 400; line++) {
+			assertSame("prefixed comment of line " + line, scanPrefixed(comments, line), index.getPrefixed(line));
+			assertSame("inline comment of line " + line, scanInline(comments, line), index.getInline(line));
+		}
+	}
+
+	private static Comment scanPrefixed(List<Comment> comments, int line) {
+		for (Comment comment : comments) {
+			if (comment.getLineOfFirstNonWhiteSpaceChar() == line) {
+				return comment;
+			}
+		}
+		return null;
+	}
+
+	private static Comment scanInline(List<Comment> comments, int line) {
+		for (Comment comment : comments) {
+			if (comment.isInline() && comment.getLineNo() == line) {
+				return comment;
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,101 @@
+package com.jamesratzlaff.typesafe;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.yaml.snakeyaml.nodes.Node;
+
+import com.jamesratzlaff.typesafe.CommentReader.Comment;
+import com.typesafe.config.ConfigOriginFactory;
+
+/**
+ * Times scanning the comments of files of growing size and looking up the
+ * comments of every line, the time per line should stay flat as the files
+ * grow. Then times converting the same files with {@link CommentMode#SCAN},
+ * once with the {@link CommentIndex} and once with the stream over every
+ * comment per node it replaced. Run it with {@code main}, it is not part of
+ * the test suite.
+ *
+ * @author jamesratzlaff
+ *
+ */
+public class CommentLookupBenchmark {
+
+	public static void main(String[] args) {
+		int[] sizes = { 1000, 4000, 16000 };
+		for (int round = 0; round < 3; round++) {
+			for (int size : sizes) {
+				run(size, round == 2);
+			}
+		}
+	}
+
+	private static void run(int entries, boolean print) {
+		StringBuilder yaml = new StringBuilder();
+		for (int i = 0; i < entries; i++) {
+			if (i % 3 == 0) {
+				yaml.append("# about k").append(i).append('\n');
+			}
+			yaml.append("k").append(i).append(": v").append(i).append(" # inline\n");
+		}
+		YamlSource source = YamlSource.of(yaml.toString());
+		List<Node> nodes = YamlConfigObjConverter.getRootNodes(source.reader());
+		long start = System.nanoTime();
+		List<Comment> comments = CommentReader.readComments(null, source, nodes);
+		long scanned = System.nanoTime();
+		CommentIndex index = new CommentIndex(comments);
+		int found = 0;
+		int lines = entries + entries / 3 + 1;
+		for (int line = 0; line < lines; line++) {
+			if (index.getPrefixed(line) != null) {
+				found++;
+			}
+			if (index.getInline(line) != null) {
+				found++;
+			}
+		}
+		long looked = System.nanoTime();
+		new YamlConfigObjConverter(ConfigOriginFactory.newSimple("indexed"), null, source, CommentMode.SCAN)
+				.getConfValue();
+		long indexed = System.nanoTime();
+		new StreamingConverter(source).getConfValue();
+		long streamed = System.nanoTime();
+		if (print) {
+			System.out.printf(
+					"%6d entries: scan %6.1f ns/line, index and lookup %6.1f ns/line (%d found), "
+							+ "convert %7.1f ms indexed, %8.1f ms streamed%n",
+					entries, (scanned - start) / (double) lines, (looked - scanned) / (double) lines, found,
+					(indexed - looked) / 1e6, (streamed - indexed) / 1e6);
+		}
+	}
+
+	/**
+	 * Looks up the comments of each node the way it was done before the
+	 * {@link CommentIndex}, by streaming over every comment of the file
+	 */
+	private static class StreamingConverter extends YamlConfigObjConverter {
+
+		StreamingConverter(YamlSource source) {
+			super(ConfigOriginFactory.newSimple("streamed"), null, source, CommentMode.SCAN);
+		}
+
+		@Override
+		protected List<Comment> getCommentForNode(Node n) {
+			List<Comment> comments = new ArrayList<Comment>(2);
+			Comment prefixed = getComments().stream()
+					.filter(comment -> comment.getLineOfFirstNonWhiteSpaceChar() == n.getStartMark().getLine())
+					.findFirst().orElse(null);
+			if (prefixed != null) {
+				comments.add(prefixed);
+			}
+			Comment inline = getComments().stream()
+					.filter(comment -> comment.getLineNo() == n.getEndMark().getLine() && comment.isInline())
+					.findFirst().orElse(null);
+			if (inline != null) {
+				comments.add(inline);
+			}
+			return comments;
+		}
+	}
+
+}
@@ -0,0 +1,53 @@
+package com.jamesratzlaff.typesafe;
+
+import java.util.concurrent.ForkJoinPool;
+
+import com.typesafe.config.ConfigOriginFactory;
+import com.typesafe.config.ConfigValue;
+
+/**
+ * Times converting one large mapping sequentially and then forked on pools of
+ * 1 up to the number of available processors, the time should drop as the
+ * pool grows. Run it with {@code main}, it is not part of the test suite.
+ *
+ * @author jamesratzlaff
+ *
+ */
+public class ForkedConversionBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		StringBuilder yaml = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			yaml.append("k").append(i).append(":\n  name: value").append(i).append("\n  list: [aa, bb, ")
+					.append(i).append("]\n  nested:\n    size: ").append(i * 7).append('\n');
+		}
+		YamlSource source = YamlSource.of(yaml.toString());
+		int processors = Runtime.getRuntime().availableProcessors();
+		for (int round = 0; round < 3; round++) {
+			boolean print = round == 2;
+			System.clearProperty(YAML_CONF.FORK_THRESHOLD_PROPERTY);
+			time("sequential", source, null, print);
+			System.setProperty(YAML_CONF.FORK_THRESHOLD_PROPERTY, "64");
+			for (int threads = 1; threads <= processors; threads <<= 1) {
+				ForkJoinPool pool = new ForkJoinPool(threads);
+				try {
+					time("forked on " + threads + " threads", source, pool, print);
+				} finally {
+					pool.shutdown();
+				}
+			}
+		}
+	}
+
+	private static void time(String label, YamlSource source, ForkJoinPool pool, boolean print) throws Exception {
+		long start = System.nanoTime();
+		YamlConfigObjConverter converter = new YamlConfigObjConverter(ConfigOriginFactory.newSimple("benchmark"), null,
+				source, CommentMode.NONE);
+		ConfigValue value = pool != null ? pool.submit(converter::getConfValue).get() : converter.getConfValue();
+		long end = System.nanoTime();
+		if (print) {
+			System.out.printf("%-24s %8.1f ms (%s)%n", label, (end - start) / 1e6, value.valueType());
+		}
+	}
+
+}
@@ -0,0 +1,74 @@
+package com.jamesratzlaff.typesafe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+import org.yaml.snakeyaml.comments.CommentLine;
+import org.yaml.snakeyaml.nodes.MappingNode;
+import org.yaml.snakeyaml.nodes.Node;
+
+import com.typesafe.config.ConfigObject;
+import com.typesafe.config.ConfigOrigin;
+import com.typesafe.config.ConfigOriginFactory;
+import com.typesafe.config.ConfigValue;
+
+public class LazyCommentLinesTest {
+	private static final String YAML = "# about a\na: 1 # one\nb:\n  # about c\n  c: [xx, yy] # list\n";
+
+	private static ConfigObject convert(String yaml, CommentMode mode) {
+		ConfigOrigin origin = ConfigOriginFactory.newSimple("test");
+		return (ConfigObject) new YamlConfigObjConverter(origin, null, YamlSource.of(yaml), mode).getConfValue();
+	}
+
+	private static ConfigObject stream(String yaml, CommentMode mode) {
+		ConfigOrigin origin = ConfigOriginFactory.newSimple("test");
+		return (ConfigObject) new YamlEventConverter(origin, null, YamlSource.of(yaml), mode).getConfValue();
+	}
+
+	@Test
+	public void readsTheSameCommentsAsTheParserMode() {
+		ConfigObject lazy = convert(YAML, CommentMode.LAZY);
+		ConfigObject parsed = convert(YAML, CommentMode.PARSER);
+		assertEquals(parsed.get("a").origin().comments(), lazy.get("a").origin().comments());
+		ConfigValue lazyC = lazy.toConfig().getValue("b.c");
+		ConfigValue parsedC = parsed.toConfig().getValue("b.c");
+		assertEquals(parsedC.origin().comments(), lazyC.origin().comments());
+	}
+
+	@Test
+	public void keepsOnlyWhereTheCommentsAre() {
+		YamlSource source = YamlSource.of(YAML);
+		Iterator<Node> documents = YamlConfigObjConverter
+				.composeAll(source.reader(), true, YamlParseLimits.getDefault()).iterator();
+		assertTrue(documents.hasNext());
+		Node root = documents.next();
+		List<CommentLine> commentLines = ((MappingNode) root).getValue().get(0).getKeyNode().getBlockComments();
+		List<String> expected = Collections.singletonList(" about a");
+		List<String> lazy = LazyCommentLines.of(source, commentLines);
+		assertTrue(lazy instanceof LazyCommentLines);
+		assertEquals(expected, lazy);
+		// without the source the text has to be copied
+		assertEquals(expected, LazyCommentLines.of(null, commentLines));
+	}
+
+	@Test
+	public void findsCommentsPastCarriageReturnsAndSurrogatePairs() {
+		String yaml = "# \ud83d\ude00 smile\r\nk\ud83d\ude00: val # \ud83d\ude00\ud83d\ude00 two\r\nlast: 1 # end\r\n";
+		ConfigObject lazy = convert(yaml, CommentMode.LAZY);
+		ConfigObject parsed = convert(yaml, CommentMode.PARSER);
+		for (String key : parsed.keySet()) {
+			assertEquals(key, parsed.get(key).origin().comments(), lazy.get(key).origin().comments());
+		}
+		ConfigObject streamed = stream(yaml, CommentMode.LAZY);
+		ConfigObject streamedParser = stream(yaml, CommentMode.PARSER);
+		for (String key : streamedParser.keySet()) {
+			assertEquals(key, streamedParser.get(key).origin().comments(), streamed.get(key).origin().comments());
+		}
+	}
+
+}
@@ -0,0 +1,30 @@
+package com.jamesratzlaff.typesafe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigObject;
+import com.typesafe.config.ConfigOriginFactory;
+
+public class MergeKeyTest {
+
+	@Test
+	public void explicitKeysAndEarlierMergesWinAndMergedValuesAreShared() {
+		String yaml = "first: &first\n  host: first-host\n  port: 1000\n  nested: {deep: value}\n"
+				+ "second: &second\n  host: second-host\n  extra: more\n"
+				+ "service:\n  <<: [*first, *second]\n  port: 2000\n";
+		ConfigObject root = (ConfigObject) new YamlConfigObjConverter(ConfigOriginFactory.newSimple("merge"), null,
+				YamlSource.of(yaml), CommentMode.NONE).getConfValue();
+		Config service = root.toConfig().getConfig("service");
+		assertEquals(2000, service.getInt("port"));
+		assertEquals("first-host", service.getString("host"));
+		assertEquals("more", service.getString("extra"));
+		ConfigObject first = (ConfigObject) root.get("first");
+		ConfigObject merged = (ConfigObject) root.get("service");
+		assertSame(first.get("nested"), merged.get("nested"));
+		assertSame(first.get("host"), merged.get("host"));
+	}
+}
@@ -0,0 +1,96 @@
+package com.jamesratzlaff.typesafe;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jamesratzlaff.yaml.spi.impl.service.IncludeResolver;
+import com.typesafe.config.ConfigException;
+import com.typesafe.config.ConfigOriginFactory;
+import com.typesafe.config.ConfigRenderOptions;
+import com.typesafe.config.ConfigValue;
+
+public class ParallelConversionTest {
+	private static final ConfigRenderOptions RENDER = ConfigRenderOptions.defaults().setJson(false);
+
+	private Path dir;
+
+	@Before
+	public void createFiles() throws IOException {
+		dir = Files.createTempDirectory("parallel-conversion");
+		StringBuilder yaml = new StringBuilder();
+		for (int doc = 0; doc < 8; doc++) {
+			yaml.append("---\nname: doc").append(doc).append('\n');
+			yaml.append("shared: &shared\n  left: !include left.conf\n  right: !include right.conf\n");
+			yaml.append("again: *shared\n");
+			yaml.append("own: !include own").append(doc).append(".conf\n");
+			yaml.append("entries:\n");
+			for (int i = 0; i < 40; i++) {
+				yaml.append("  key").append(i).append(":\n    list: [aa, bb, ").append(i).append("]\n");
+				yaml.append("    side: ").append(i % 10 == 0 ? "*shared" : "!include left.conf").append('\n');
+			}
+			write("own" + doc + ".conf", "value = " + doc + "\n");
+		}
+		write("main.yml", yaml.toString());
+		write("left.conf", "side = left\n");
+		write("right.conf", "side = right\n");
+	}
+
+	private void write(String name, String content) throws IOException {
+		Files.write(dir.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@After
+	public void deleteFiles() throws IOException {
+		System.clearProperty(YAML_CONF.PARALLEL_PROPERTY);
+		System.clearProperty(YAML_CONF.FORK_THRESHOLD_PROPERTY);
+		try (Stream<Path> files = Files.walk(dir)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Test
+	public void documentsConvertedInParallelMatchASequentialConversion() throws IOException {
+		ConfigValue sequential = YamlConfigProvider.parse(dir.resolve("main.yml"));
+		Object sequentialIncludes = IncludeResolver.getLastIncludeGraph();
+		System.setProperty(YAML_CONF.PARALLEL_PROPERTY, "true");
+		for (int i = 0; i < 10; i++) {
+			ConfigValue parallel = YamlConfigProvider.parse(dir.resolve("main.yml"));
+			assertEquals(sequential.render(RENDER), parallel.render(RENDER));
+			assertEquals(sequentialIncludes, IncludeResolver.getLastIncludeGraph());
+		}
+	}
+
+	@Test
+	public void forkedConversionMatchesASequentialConversion() throws IOException {
+		ConfigValue sequential = YamlConfigProvider.parse(dir.resolve("main.yml"));
+		Object sequentialIncludes = IncludeResolver.getLastIncludeGraph();
+		System.setProperty(YAML_CONF.FORK_THRESHOLD_PROPERTY, "4");
+		for (boolean parallel : new boolean[] { false, true }) {
+			System.setProperty(YAML_CONF.PARALLEL_PROPERTY, Boolean.toString(parallel));
+			for (int i = 0; i < 10; i++) {
+				ConfigValue forked = YamlConfigProvider.parse(dir.resolve("main.yml"));
+				assertEquals(sequential.render(RENDER), forked.render(RENDER));
+				assertEquals(sequentialIncludes, IncludeResolver.getLastIncludeGraph());
+			}
+		}
+	}
+
+	@Test(timeout = 10000, expected = ConfigException.Parse.class)
+	public void recursiveAliasFailsWhenForked() {
+		System.setProperty(YAML_CONF.FORK_THRESHOLD_PROPERTY, "2");
+		String yaml = "root: &root\n  self: *root\n  other: value\n";
+		new YamlConfigObjConverter(ConfigOriginFactory.newSimple("test"), null, YamlSource.of(yaml),
+				CommentMode.PARSER).getConfValue();
+	}
+
+}
@@ -0,0 +1,136 @@
+package com.jamesratzlaff.typesafe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigObject;
+import com.typesafe.config.ConfigValue;
+
+public class YamlConfigWatcherTest {
+	private static final long DEBOUNCE_MILLIS = 50;
+	private static final long TIMEOUT_SECONDS = 10;
+
+	private Path dir;
+	private YamlConfigWatcher watcher;
+	private final BlockingQueue<Object> events = new LinkedBlockingQueue<Object>();
+
+	@Before
+	public void createDirectory() throws IOException {
+		dir = Files.createTempDirectory("config-watcher").toRealPath();
+	}
+
+	@After
+	public void deleteDirectory() throws IOException {
+		if (watcher != null) {
+			watcher.close();
+		}
+		try (Stream<Path> files = Files.walk(dir)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	private Path write(String name, String content) throws IOException {
+		Path path = dir.resolve(name);
+		Files.createDirectories(path.getParent());
+		return Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private Config watch(Path root) throws IOException {
+		watcher = new YamlConfigWatcher(DEBOUNCE_MILLIS, Collections.singleton(root));
+		watcher.addListener(new YamlConfigWatcher.Listener() {
+			@Override
+			public void reloaded(Set<Path> reloaded, Map<Path, ConfigValue> snapshot) {
+				events.add(snapshot);
+			}
+
+			@Override
+			public void reloadFailed(Path root, RuntimeException cause) {
+				events.add(cause);
+			}
+		});
+		watcher.start();
+		return config(root);
+	}
+
+	private Config config(Path root) {
+		return ((ConfigObject) watcher.get(root)).toConfig();
+	}
+
+	private Object nextEvent() throws InterruptedException {
+		Object event = events.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		assertNotNull("no reload within " + TIMEOUT_SECONDS + "s", event);
+		return event;
+	}
+
+	@Test
+	public void rootEditIsReloaded() throws Exception {
+		Path root = write("app.yml", "name: first\ncount: 1\n");
+		assertEquals("first", watch(root).getString("name"));
+		write("app.yml", "name: second one\ncount: 2\n");
+		assertTrue(nextEvent() instanceof Map);
+		assertEquals("second one", config(root).getString("name"));
+		assertEquals(2, config(root).getInt("count"));
+	}
+
+	@Test
+	public void includedFileEditReloadsTheRoot() throws Exception {
+		Path root = write("app.yml", "leaf: !include leaf.conf\nname: app\n");
+		write("leaf.conf", "value = 1\n");
+		assertEquals(1, watch(root).getInt("leaf.value"));
+		write("leaf.conf", "value = 22\n");
+		assertTrue(nextEvent() instanceof Map);
+		assertEquals(22, config(root).getInt("leaf.value"));
+		assertEquals("app", config(root).getString("name"));
+	}
+
+	@Test
+	public void swappedDataSymlinkIsReloadedAndTheOldTargetUnwatched() throws Exception {
+		Path first = write("..2020_01/app.yml", "name: first\n").getParent();
+		Files.createSymbolicLink(dir.resolve("..data"), Paths.get("..2020_01"));
+		Path root = Files.createSymbolicLink(dir.resolve("app.yml"), Paths.get("..data", "app.yml"));
+		assertEquals("first", watch(root).getString("name"));
+		assertTrue(watcher.getWatchedDirectories().contains(first));
+
+		Path second = write("..2020_02/app.yml", "name: second one\n").getParent();
+		Path link = Files.createSymbolicLink(dir.resolve("..data_tmp"), Paths.get("..2020_02"));
+		Files.move(link, dir.resolve("..data"), StandardCopyOption.ATOMIC_MOVE);
+		assertTrue(nextEvent() instanceof Map);
+		assertEquals("second one", config(root).getString("name"));
+		assertTrue(watcher.getWatchedDirectories().contains(second));
+		assertFalse(watcher.getWatchedDirectories().contains(first));
+	}
+
+	@Test
+	public void failedReloadKeepsThePreviousValue() throws Exception {
+		Path root = write("app.yml", "name: first\n");
+		assertEquals("first", watch(root).getString("name"));
+		write("app.yml", "name: [unclosed\n");
+		assertTrue(nextEvent() instanceof RuntimeException);
+		assertEquals("first", config(root).getString("name"));
+		write("app.yml", "name: fixed again\n");
+		assertTrue(nextEvent() instanceof Map);
+		assertEquals("fixed again", config(root).getString("name"));
+	}
+}
@@ -0,0 +1,44 @@
+package com.jamesratzlaff.typesafe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.typesafe.config.ConfigObject;
+import com.typesafe.config.ConfigOriginFactory;
+import com.typesafe.config.ConfigValue;
+
+public class YamlConversionMemoTest {
+	private static final String UNCHANGED = "unchanged:\n  host: localhost\n  ports: [80, 443]\n";
+
+	private static ConfigObject convert(YamlConversionMemo memo, String yaml) {
+		return (ConfigObject) new YamlConfigObjConverter(ConfigOriginFactory.newSimple("memo"), null,
+				YamlSource.of(yaml), CommentMode.SCAN).reusing(memo).getConfValue();
+	}
+
+	@Test
+	public void unchangedSubtreeIsReusedAfterAnEditElsewhere() {
+		YamlConversionMemo memo = new YamlConversionMemo();
+		ConfigObject first = convert(memo, "edited:\n  name: before\n" + UNCHANGED);
+		ConfigObject second = convert(memo, "edited:\n  name: after\n" + UNCHANGED);
+		assertSame(first.get("unchanged"), second.get("unchanged"));
+		assertNotSame(first.get("edited"), second.get("edited"));
+		assertEquals("after", second.toConfig().getString("edited.name"));
+	}
+
+	@Test
+	public void movedSubtreeIsReusedWithItsLinesMoved() {
+		YamlConversionMemo memo = new YamlConversionMemo();
+		ConfigObject first = convert(memo, "top: 1\n" + UNCHANGED);
+		ConfigObject second = convert(memo, "top: 1\ninserted: 2\nalso: 3\n" + UNCHANGED);
+		assertEquals(1, memo.getReused());
+		ConfigValue before = first.toConfig().getValue("unchanged.ports");
+		ConfigValue after = second.toConfig().getValue("unchanged.ports");
+		assertEquals(before.unwrapped(), after.unwrapped());
+		assertEquals(before.origin().lineNumber() + 2, after.origin().lineNumber());
+		assertEquals(first.toConfig().getValue("unchanged.host").origin().lineNumber() + 2,
+				second.toConfig().getValue("unchanged.host").origin().lineNumber());
+	}
+}
@@ -0,0 +1,67 @@
+package com.jamesratzlaff.typesafe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.yaml.snakeyaml.nodes.Node;
+
+import com.jamesratzlaff.typesafe.CommentReader.Comment;
+import com.typesafe.config.ConfigOrigin;
+import com.typesafe.config.ConfigOriginFactory;
+import com.typesafe.config.ConfigRenderOptions;
+import com.typesafe.config.ConfigValue;
+
+public class YamlDocumentsTest {
+	private static final String YAML = "# about the first\nname: first # inline\nlist:\n  - aa # first entry\n  - bb\n"
+			+ "---\n# about the second\nname: \"not # a comment\" # but this is\ntext: |\n  # part of the text\n"
+			+ "  more text\nafter: text\n--- # on the marker\nname: third\n# at the end\n";
+
+	private static final ConfigRenderOptions RENDER = ConfigRenderOptions.defaults().setJson(false);
+
+	/**
+	 * @return each document converted on its own with the comments of a single
+	 *         scan over the whole source
+	 */
+	private static List<String> eachWithAllTheComments(ConfigOrigin origin, YamlSource source) {
+		List<Node> nodes = YamlConfigObjConverter.getRootNodes(source.reader());
+		List<Comment> comments = CommentReader.readComments(null, source, nodes);
+		List<String> rendered = new ArrayList<String>();
+		for (Node node : nodes) {
+			ConfigValue value = new YamlConfigObjConverter(origin, null, Collections.singletonList(node), comments,
+					source, CommentMode.SCAN, YamlParseLimits.getDefault()).getConfValue();
+			rendered.add(value.render(RENDER));
+		}
+		return rendered;
+	}
+
+	@Test
+	public void scanningADocumentAtATimeFindsTheSameCommentsAsOneScan() {
+		ConfigOrigin origin = ConfigOriginFactory.newSimple("test");
+		YamlSource source = YamlSource.of(YAML);
+		List<String> expected = eachWithAllTheComments(origin, source);
+		assertEquals(3, expected.size());
+		YamlDocuments inOrder = new YamlDocuments(origin, null, source, CommentMode.SCAN);
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i), inOrder.get(i).render(RENDER));
+		}
+		YamlDocuments outOfOrder = new YamlDocuments(origin, null, source, CommentMode.SCAN);
+		assertEquals(expected.get(2), outOfOrder.get(2).render(RENDER));
+		assertEquals(expected.get(0), outOfOrder.get(0).render(RENDER));
+		assertEquals(expected.get(1), outOfOrder.get(1).render(RENDER));
+	}
+
+	@Test
+	public void keepsTheCommentsOfADocumentOutOfTheNext() {
+		String yaml = "list:\n  - aa\n  - bb # last entry\n# trailing the first\n---\nname: second\n";
+		YamlDocuments documents = new YamlDocuments(ConfigOriginFactory.newSimple("test"), null, YamlSource.of(yaml),
+				CommentMode.SCAN);
+		List<String> comments = documents.getConfig(1).getValue("name").origin().comments();
+		assertFalse(comments.toString(), comments.contains(" trailing the first"));
+	}
+
+}
@@ -0,0 +1,109 @@
+package com.jamesratzlaff.typesafe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jamesratzlaff.yaml.spi.impl.service.IncludeResolver;
+import com.typesafe.config.ConfigIncludeContext;
+import com.typesafe.config.ConfigObject;
+import com.typesafe.config.ConfigOrigin;
+import com.typesafe.config.ConfigOriginFactory;
+import com.typesafe.config.ConfigParseOptions;
+import com.typesafe.config.ConfigValue;
+import com.typesafe.config.ConfigValueFactory;
+import com.typesafe.config.impl.ConfigImplementationsAccessor;
+
+public class YamlParseCacheTest {
+	private Path dir;
+	private YamlParseCache cache;
+
+	@Before
+	public void createFiles() throws IOException {
+		dir = Files.createTempDirectory("parse-cache");
+		cache = new YamlParseCache(1 << 20);
+		write("main.yml", "leaf: !include leaf.conf\n");
+		write("leaf.conf", "value = 1\n");
+	}
+
+	private void write(String name, String content) throws IOException {
+		Files.write(dir.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@After
+	public void deleteFiles() throws IOException {
+		try (Stream<Path> files = Files.walk(dir)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	private ConfigValue load() throws IOException {
+		Path main = dir.resolve("main.yml");
+		ConfigOrigin origin = ConfigOriginFactory.newFile(main.toString());
+		ConfigIncludeContext includeContext = ConfigImplementationsAccessor.newIncludeContext(main.toFile(),
+				ConfigParseOptions.defaults());
+		try (Reader reader = Files.newBufferedReader(main)) {
+			return new YamlConfigProvider().rawParseValue(cache, reader, origin, includeContext);
+		}
+	}
+
+	@Test
+	public void aHitStillRecordsWhatTheSourceIncluded() throws IOException {
+		ConfigValue first = load();
+		Map<String, Set<String>> missGraph = IncludeResolver.getLastIncludeGraph();
+		assertEquals(Collections.singleton(dir.resolve("leaf.conf").toUri().toURL().toExternalForm()),
+				missGraph.get(dir.resolve("main.yml").toUri().toURL().toExternalForm()));
+		assertSame(first, load());
+		assertEquals(missGraph, IncludeResolver.getLastIncludeGraph());
+	}
+
+	@Test
+	public void aChangedIncludeIsAMiss() throws IOException {
+		ConfigValue first = load();
+		write("leaf.conf", "value = 22\n");
+		ConfigValue second = load();
+		assertEquals(1, ((ConfigObject) first).toConfig().getInt("leaf.value"));
+		assertEquals(22, ((ConfigObject) second).toConfig().getInt("leaf.value"));
+	}
+
+	@Test
+	public void optionsOfTheSameUrlAreCachedSideBySide() throws IOException {
+		URL url = dir.resolve("main.yml").toUri().toURL();
+		YamlParseCache.Key scan = cache.keyFor(url, CommentMode.SCAN);
+		YamlParseCache.Key none = cache.keyFor(url, CommentMode.NONE);
+		cache.put(scan, ConfigValueFactory.fromAnyRef("scan"), Collections.emptySet());
+		cache.put(none, ConfigValueFactory.fromAnyRef("none"), Collections.emptySet());
+		assertEquals("scan", cache.get(scan).getValue().unwrapped());
+		assertEquals("none", cache.get(none).getValue().unwrapped());
+		cache.invalidate(url);
+		assertNull(cache.get(scan));
+		assertNull(cache.get(none));
+		assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	public void includesThatCanNotBeStampedAreNotCached() throws IOException {
+		YamlParseCache.Key key = cache.keyFor(dir.resolve("main.yml").toUri().toURL(), CommentMode.SCAN);
+		assertNotNull(key);
+		cache.put(key, ConfigValueFactory.fromAnyRef("value"), Collections.singleton("not a url"));
+		assertNull(cache.get(key));
+	}
+
+}
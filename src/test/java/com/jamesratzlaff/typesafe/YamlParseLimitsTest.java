@@ -0,0 +1,78 @@
+package com.jamesratzlaff.typesafe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import com.typesafe.config.ConfigException;
+import com.typesafe.config.ConfigObject;
+import com.typesafe.config.ConfigOriginFactory;
+
+public class YamlParseLimitsTest {
+	private static final YamlParseLimits LIMITS = YamlParseLimits.getDefault().withMaxDepth(3);
+
+	private static ConfigObject convert(String yaml, boolean streaming) {
+		YamlSource source = YamlSource.of(yaml);
+		if (streaming) {
+			return (ConfigObject) new YamlEventConverter(ConfigOriginFactory.newSimple("test"), null, source,
+					CommentMode.SCAN, LIMITS).getConfValue();
+		}
+		return (ConfigObject) new YamlConfigObjConverter(ConfigOriginFactory.newSimple("test"), null, source,
+				CommentMode.SCAN, LIMITS).getConfValue();
+	}
+
+	@Test
+	public void scalarsDoNotCountTowardsTheDepth() {
+		String yaml = "aa:\n  bb:\n    cc: leaf\n";
+		assertEquals("leaf", convert(yaml, false).toConfig().getString("aa.bb.cc"));
+		assertEquals("leaf", convert(yaml, true).toConfig().getString("aa.bb.cc"));
+	}
+
+	@Test(expected = ConfigException.Parse.class)
+	public void collectionsPastTheDepthAreRejected() {
+		// only the streaming converter, snakeyaml already stops the composer at the same depth
+		convert("aa:\n  bb:\n    cc:\n      dd: leaf\n", true);
+	}
+
+	@Test
+	public void anOversizedReaderIsRejectedWithoutReadingAllOfIt() throws IOException {
+		long[] read = new long[1];
+		Reader endless = new Reader() {
+			@Override
+			public int read(char[] cbuf, int off, int len) {
+				for (int i = 0; i < len; i++) {
+					cbuf[off + i] = '#';
+				}
+				read[0] += len;
+				return len;
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		try {
+			YamlParseLimits.getDefault().withMaxSize(100).read(ConfigOriginFactory.newSimple("test"), endless);
+			fail("an endless reader was read");
+		} catch (ConfigException.Parse e) {
+			assertTrue(read[0] <= 101);
+		}
+		assertEquals(100, YamlParseLimits.getDefault().withMaxSize(100)
+				.read(ConfigOriginFactory.newSimple("test"), new StringReader(repeat(100))).length());
+	}
+
+	private static String repeat(int count) {
+		StringBuilder builder = new StringBuilder(count);
+		for (int i = 0; i < count; i++) {
+			builder.append('#');
+		}
+		return builder.toString();
+	}
+
+}
@@ -0,0 +1,106 @@
+package com.jamesratzlaff.typesafe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jamesratzlaff.typesafe.YamlSnapshotStore.YamlSnapshot;
+import com.jamesratzlaff.yaml.spi.impl.service.IncludeResolver;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigObject;
+import com.typesafe.config.ConfigOriginFactory;
+import com.typesafe.config.ConfigValue;
+
+public class YamlPrecompilerTest {
+	private Path dir;
+	private Path yaml;
+	private Path artifact;
+
+	@Before
+	public void createFiles() throws IOException {
+		dir = Files.createTempDirectory("precompiled");
+		Files.createDirectories(dir.resolve("conf"));
+		yaml = dir.resolve("conf/main.yml");
+		artifact = dir.resolve("conf/main.yml" + YamlPrecompiler.EXTENSION);
+		write("conf/main.yml", "name: main\nshared: !include ../shared.conf\n");
+		write("shared.conf", "side = before\n");
+	}
+
+	private void write(String name, String content) throws IOException {
+		Files.write(dir.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@After
+	public void deleteFiles() throws IOException {
+		System.clearProperty(YAML_CONF.PRECOMPILED_PROPERTY);
+		try (Stream<Path> files = Files.walk(dir)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	private static String side(ConfigValue value) {
+		return ((ConfigObject) value).toConfig().getString("shared.side");
+	}
+
+	/**
+	 * Writes an artifact for the yaml that holds a different value than the
+	 * yaml converts to, so a load that returns it can only have come from the
+	 * artifact
+	 */
+	private void writeMarkedArtifact() throws IOException {
+		String key = YamlSnapshotStore.contentKeyFor(YamlSource.of(yaml), YamlConfigProvider.getCacheOptions());
+		Map<String, String> includes = Collections.singletonMap("../shared.conf",
+				YamlPrecompiler.hashOf(dir.resolve("shared.conf").toUri().toURL()));
+		ConfigValue marked = ConfigFactory.parseString("name = main, shared.side = marked").root();
+		try (OutputStream os = Files.newOutputStream(artifact)) {
+			YamlPrecompiler.write(os, key, includes, ConfigOriginFactory.newFile(yaml.toString()), marked);
+		}
+	}
+
+	@Test
+	public void precompilingRecordsIncludesRelativeToTheYaml() throws IOException {
+		YamlPrecompiler.precompile(yaml, artifact);
+		YamlSnapshot snapshot = YamlPrecompiler.read(yaml.toUri().toURL(), YamlSource.of(yaml),
+				ConfigOriginFactory.newFile(yaml.toString()));
+		assertEquals("before", side(snapshot.getValue()));
+		assertEquals(Collections.singletonList(dir.resolve("shared.conf").toUri().toURL().toExternalForm()),
+				snapshot.getIncludes());
+	}
+
+	@Test
+	public void artifactsAreIgnoredUnlessEnabled() throws IOException {
+		writeMarkedArtifact();
+		assertEquals("before", side(YamlConfigProvider.parse(yaml)));
+	}
+
+	@Test
+	public void anUpToDateArtifactIsLoadedWithItsIncludes() throws IOException {
+		writeMarkedArtifact();
+		System.setProperty(YAML_CONF.PRECOMPILED_PROPERTY, "true");
+		assertEquals("marked", side(YamlConfigProvider.parse(yaml)));
+		String include = dir.resolve("shared.conf").toUri().toURL().toExternalForm();
+		assertTrue(IncludeResolver.getLastIncludeGraph().get(yaml.toUri().toURL().toExternalForm()).contains(include));
+	}
+
+	@Test
+	public void anArtifactIsIgnoredOnceAnIncludeChanges() throws IOException {
+		writeMarkedArtifact();
+		System.setProperty(YAML_CONF.PRECOMPILED_PROPERTY, "true");
+		write("shared.conf", "side = after\n");
+		assertEquals("after", side(YamlConfigProvider.parse(yaml)));
+	}
+
+}
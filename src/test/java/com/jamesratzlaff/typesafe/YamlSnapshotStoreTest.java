@@ -0,0 +1,70 @@
+package com.jamesratzlaff.typesafe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValue;
+
+public class YamlSnapshotStoreTest {
+	private static final String KEY = "key";
+
+	private Path dir;
+	private YamlSnapshotStore store;
+
+	@Before
+	public void createStore() throws IOException {
+		dir = Files.createTempDirectory("snapshots");
+		store = new YamlSnapshotStore(dir);
+	}
+
+	@After
+	public void deleteStore() throws IOException {
+		try (Stream<Path> files = Files.walk(dir)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Test
+	public void readsBackWhatWasWritten() {
+		ConfigValue value = ConfigFactory.parseString("aa { bb = [1, two], cc = ${aa.bb} }").root();
+		assertTrue(store.write(KEY, value, Collections.emptyList()));
+		assertEquals(value.render(), store.read(KEY).getValue().render());
+	}
+
+	@Test
+	public void aCorruptSnapshotIsAMiss() throws IOException {
+		ConfigValue value = ConfigFactory.parseString("aa { bb = [1, two], cc = ${aa.bb} }").root();
+		assertTrue(store.write(KEY, value, Collections.emptyList()));
+		Path file;
+		try (Stream<Path> files = Files.list(dir)) {
+			file = files.findFirst().get();
+		}
+		byte[] bytes = Files.readAllBytes(file);
+		for (int length = 0; length < bytes.length; length++) {
+			Files.write(file, Arrays.copyOf(bytes, length));
+			assertNull("truncated to " + length, store.read(KEY));
+		}
+		for (int i = 0; i < bytes.length; i++) {
+			byte[] corrupt = bytes.clone();
+			corrupt[i] ^= 0x80;
+			Files.write(file, corrupt);
+			// whatever it reads as, it must not throw
+			store.read(KEY);
+		}
+	}
+
+}
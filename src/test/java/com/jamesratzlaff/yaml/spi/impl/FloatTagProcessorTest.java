@@ -0,0 +1,101 @@
+package com.jamesratzlaff.yaml.spi.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+import com.typesafe.config.ConfigException;
+import com.typesafe.config.ConfigOriginFactory;
+
+public class FloatTagProcessorTest {
+
+	private static void assertParses(Number expected, String value) {
+		assertEquals(value, expected, FloatTagProcessor.parse(value));
+	}
+
+	private static void assertRejected(String value) {
+		try {
+			fail("'" + value + "' parsed as " + FloatTagProcessor.parse(value));
+		} catch (NumberFormatException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void parsesTheSpecialValues() {
+		assertParses(Double.POSITIVE_INFINITY, ".inf");
+		assertParses(Double.POSITIVE_INFINITY, "+.Inf");
+		assertParses(Double.NEGATIVE_INFINITY, "-.inf");
+		assertParses(Double.NEGATIVE_INFINITY, "-.INF");
+		assertParses(Double.NaN, ".nan");
+		assertParses(Double.NaN, ".NaN");
+		assertRejected("-.nan");
+		assertRejected(".infinity");
+	}
+
+	@Test
+	public void parsesPlainDecimals() {
+		assertParses(1.5, "1.5");
+		assertParses(-1.5, "-1.5");
+		assertParses(0.5, ".5");
+		assertParses(1.0, "1.");
+		assertParses(100000.0, "1e5");
+		assertParses(0.0125, "1.25E-2");
+		assertParses(0.0, "0.0");
+	}
+
+	@Test
+	public void keepsFifteenDigitsInADouble() {
+		assertParses(0.123456789012345, "0.123456789012345");
+		assertParses(123456789012345.0, "123456789012345.0");
+		assertParses(100000000000000000000.0, "100000000000000000000.0");
+		assertParses(new BigDecimal("0.1234567890123456"), "0.1234567890123456");
+		assertParses(new BigDecimal("1234567890123456.0"), "1234567890123456.0");
+	}
+
+	@Test
+	public void keepsWhatADoubleCanNotHold() {
+		assertParses(new BigDecimal("1e-400"), "1e-400");
+		assertParses(new BigDecimal("4.9e-324"), "4.9e-324");
+		assertParses(new BigDecimal("1e400"), "1e400");
+		assertParses(new BigDecimal("-1e400"), "-1e400");
+	}
+
+	@Test
+	public void ignoresSeparators() {
+		assertParses(1000.5, "1_000.5");
+		assertParses(0.000125, "0.000_125");
+	}
+
+	@Test
+	public void parsesBaseSixty() {
+		assertParses(90.5, "1:30.5");
+		assertParses(-90.0, "-1:30");
+		assertParses(5400.0, "1:30:00");
+		assertRejected("1:60");
+		assertRejected("1:30.5:00");
+		assertRejected("1::30");
+		assertRejected(":30");
+	}
+
+	@Test
+	public void rejectsWhatIsNotAFloat() {
+		assertRejected("");
+		assertRejected(".");
+		assertRejected("-");
+		assertRejected("e5");
+		assertRejected("1e");
+		assertRejected("1e5.5");
+		assertRejected("1.2.3");
+		assertRejected("abc");
+	}
+
+	@Test(expected = ConfigException.Parse.class)
+	public void applyReportsWhatIsNotAFloatAsAParseError() {
+		new FloatTagProcessor().apply(ConfigOriginFactory.newSimple("test"), "1.2.3", null);
+	}
+
+}
@@ -0,0 +1,63 @@
+package com.jamesratzlaff.yaml.spi.impl;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * Times {@link IntTagProcessor#parse(String)} against what it replaced,
+ * creating a {@link BigInteger} for every value and narrowing it by comparing
+ * it against the int and long bounds. Only decimal values are timed, that is
+ * all the old path accepted. Run it with {@code main}, it is not part of the
+ * test suite.
+ *
+ * @author jamesratzlaff
+ *
+ */
+public class IntParseBenchmark {
+	private static final BigInteger MAX_INT = BigInteger.valueOf(Integer.MAX_VALUE);
+	private static final BigInteger MIN_INT = BigInteger.valueOf(Integer.MIN_VALUE);
+	private static final BigInteger MAX_LONG = BigInteger.valueOf(Long.MAX_VALUE);
+	private static final BigInteger MIN_LONG = BigInteger.valueOf(Long.MIN_VALUE);
+
+	public static void main(String[] args) {
+		Random random = new Random(42);
+		String[] ints = new String[100000];
+		String[] longs = new String[ints.length];
+		for (int i = 0; i < ints.length; i++) {
+			ints[i] = Integer.toString(random.nextInt(2000000) - 1000000);
+			longs[i] = Long.toString(random.nextLong());
+		}
+		for (int round = 0; round < 5; round++) {
+			boolean print = round == 4;
+			time("ints, parse", ints, false, print);
+			time("ints, BigInteger", ints, true, print);
+			time("longs, parse", longs, false, print);
+			time("longs, BigInteger", longs, true, print);
+		}
+	}
+
+	private static void time(String label, String[] values, boolean bigInteger, boolean print) {
+		long sink = 0;
+		long start = System.nanoTime();
+		for (int repeat = 0; repeat < 10; repeat++) {
+			for (String value : values) {
+				sink += (bigInteger ? parseWithBigInteger(value) : IntTagProcessor.parse(value)).hashCode();
+			}
+		}
+		long end = System.nanoTime();
+		if (print) {
+			System.out.printf("%-20s %6.1f ns/value (%d)%n", label, (end - start) / (values.length * 10.0), sink);
+		}
+	}
+
+	private static Number parseWithBigInteger(String value) {
+		BigInteger intVal = new BigInteger(value);
+		if (intVal.compareTo(MAX_INT) <= 0 && intVal.compareTo(MIN_INT) >= 0) {
+			return intVal.intValue();
+		} else if (intVal.compareTo(MAX_LONG) <= 0 && intVal.compareTo(MIN_LONG) >= 0) {
+			return intVal.longValue();
+		}
+		return intVal;
+	}
+
+}
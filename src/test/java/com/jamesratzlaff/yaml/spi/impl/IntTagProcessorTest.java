@@ -0,0 +1,94 @@
+package com.jamesratzlaff.yaml.spi.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.math.BigInteger;
+
+import org.junit.Test;
+
+import com.typesafe.config.ConfigException;
+import com.typesafe.config.ConfigOriginFactory;
+
+public class IntTagProcessorTest {
+
+	private static void assertParses(Number expected, String value) {
+		assertEquals(value, expected, IntTagProcessor.parse(value));
+	}
+
+	private static void assertRejected(String value) {
+		try {
+			fail("'" + value + "' parsed as " + IntTagProcessor.parse(value));
+		} catch (NumberFormatException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void usesTheSmallestTypeTheValueFits() {
+		assertParses(0, "0");
+		assertParses(Integer.MAX_VALUE, "2147483647");
+		assertParses(2147483648L, "2147483648");
+		assertParses(Integer.MIN_VALUE, "-2147483648");
+		assertParses(-2147483649L, "-2147483649");
+	}
+
+	@Test
+	public void handlesTheEdgesOfLong() {
+		assertParses(Long.MAX_VALUE, "9223372036854775807");
+		assertParses(Long.MIN_VALUE, "-9223372036854775808");
+		assertParses(new BigInteger("9223372036854775808"), "9223372036854775808");
+		assertParses(new BigInteger("-9223372036854775809"), "-9223372036854775809");
+		assertParses(new BigInteger("ffffffffffffffff", 16), "0xFFFFFFFFFFFFFFFF");
+	}
+
+	@Test
+	public void parsesEveryBase() {
+		assertParses(31, "0x1F");
+		assertParses(-16, "-0x10");
+		assertParses(10, "0b1010");
+		assertParses(15, "0o17");
+		assertParses(15, "017");
+		assertParses(0, "00");
+		assertParses(1000000, "+1_000_000");
+		assertParses(255, "0x_ff");
+	}
+
+	@Test
+	public void parsesBaseSixty() {
+		assertParses(90, "1:30");
+		assertParses(5400, "1:30:00");
+		assertParses(-90, "-1:30");
+		assertParses(new BigInteger("9223372036854775807").multiply(BigInteger.valueOf(60)),
+				"9223372036854775807:00");
+		assertRejected("1:60");
+		assertRejected("1:");
+	}
+
+	@Test
+	public void rejectsDigitsOutsideTheBase() {
+		// a leading 0 means octal, the baseline read 08 as 8
+		assertRejected("08");
+		assertRejected("0b102");
+		assertRejected("0xG");
+	}
+
+	@Test
+	public void rejectsWhatIsNotAnInt() {
+		assertRejected("");
+		assertRejected("+");
+		assertRejected("-");
+		assertRejected("0x");
+		assertRejected("0b");
+		assertRejected("0o");
+		assertRejected("12a");
+		assertRejected("1.5");
+		assertRejected("abc");
+	}
+
+	@Test(expected = ConfigException.Parse.class)
+	public void applyReportsWhatIsNotAnIntAsAParseError() {
+		new IntTagProcessor().apply(ConfigOriginFactory.newSimple("test"), "08", null);
+	}
+
+}
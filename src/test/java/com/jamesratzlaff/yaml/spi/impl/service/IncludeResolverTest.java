@@ -0,0 +1,118 @@
+package com.jamesratzlaff.yaml.spi.impl.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.jamesratzlaff.typesafe.YamlConfigProvider;
+import com.jamesratzlaff.typesafe.YamlSource;
+import com.typesafe.config.ConfigException;
+import com.typesafe.config.ConfigIncludeContext;
+import com.typesafe.config.ConfigObject;
+import com.typesafe.config.ConfigOrigin;
+import com.typesafe.config.ConfigOriginFactory;
+import com.typesafe.config.ConfigParseOptions;
+import com.typesafe.config.ConfigParseable;
+
+public class IncludeResolverTest {
+	/**
+	 * Stock typesafe config only includes names that end in {@code .conf} (or
+	 * {@code .json}/{@code .properties}) and doesn't hand {@code .yml} files to
+	 * the yaml provider, so the includes here are served from memory and parsed
+	 * as yaml whatever they are called
+	 */
+	private final Map<String, String> sources = new HashMap<String, String>();
+	private final Map<String, AtomicInteger> parses = new HashMap<String, AtomicInteger>();
+	private final ConfigIncludeContext includeContext = new ConfigIncludeContext() {
+		@Override
+		public ConfigParseable relativeTo(String name) {
+			return sources.containsKey(name) ? new InMemory(name) : null;
+		}
+
+		@Override
+		public ConfigParseOptions parseOptions() {
+			return ConfigParseOptions.defaults();
+		}
+
+		@Override
+		public ConfigIncludeContext setParseOptions(ConfigParseOptions options) {
+			return this;
+		}
+	};
+
+	private final class InMemory implements ConfigParseable {
+		private final String name;
+
+		InMemory(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public ConfigObject parse(ConfigParseOptions options) {
+			parses.computeIfAbsent(name, k -> new AtomicInteger()).incrementAndGet();
+			return (ConfigObject) new YamlConfigProvider().parseValue(YamlSource.of(sources.get(name)), origin(),
+					includeContext);
+		}
+
+		@Override
+		public ConfigOrigin origin() {
+			return ConfigOriginFactory.newSimple(name);
+		}
+
+		@Override
+		public ConfigParseOptions options() {
+			return ConfigParseOptions.defaults();
+		}
+	}
+
+	private ConfigObject load(String name) {
+		return new InMemory(name).parse(ConfigParseOptions.defaults());
+	}
+
+	@Test
+	public void aCycleFailsWithTheChainOfIncludes() {
+		sources.put("a.conf", "name: first\nb: !include b.conf\n");
+		sources.put("b.conf", "name: second\na: !include a.conf\n");
+		try {
+			load("a.conf");
+			fail("the cycle was not detected");
+		} catch (ConfigException.Parse e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("include cycle a.conf -> b.conf -> a.conf"));
+		}
+	}
+
+	@Test
+	public void aResourceIncludedFromManyPlacesIsParsedOnce() {
+		sources.put("main.conf", "left: !include left.conf\nright: !include right.conf\n"
+				+ "again: !include shared.conf\nlist: [!include shared.conf, !include shared.conf]\n");
+		sources.put("left.conf", "shared: !include shared.conf\n");
+		sources.put("right.conf", "shared: !include shared.conf\n");
+		sources.put("shared.conf", "value: shared\n");
+		ConfigObject main = load("main.conf");
+		assertEquals(1, parses.get("shared.conf").get());
+		assertEquals("shared", main.toConfig().getString("left.shared.value"));
+		assertEquals("shared", main.toConfig().getString("right.shared.value"));
+		assertEquals("shared", main.toConfig().getString("again.value"));
+		assertEquals(2, main.toConfig().getList("list").size());
+
+		Map<String, Set<String>> expected = new LinkedHashMap<String, Set<String>>();
+		expected.put("main.conf", new LinkedHashSet<String>(Arrays.asList("left.conf", "right.conf", "shared.conf")));
+		expected.put("left.conf", Collections.singleton("shared.conf"));
+		expected.put("right.conf", Collections.singleton("shared.conf"));
+		Map<String, Set<String>> graph = IncludeResolver.getLastIncludeGraph();
+		assertEquals(expected, graph);
+		assertEquals(Arrays.asList("left.conf", "right.conf", "shared.conf"),
+				Arrays.asList(graph.get("main.conf").toArray()));
+	}
+}
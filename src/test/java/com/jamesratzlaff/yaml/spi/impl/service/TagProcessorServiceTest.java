@@ -0,0 +1,177 @@
+package com.jamesratzlaff.yaml.spi.impl.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+import org.yaml.snakeyaml.nodes.Tag;
+
+import com.jamesratzlaff.typesafe.YamlConfigProvider;
+import com.jamesratzlaff.yaml.spi.TagProcessor;
+import com.jamesratzlaff.yaml.spi.impl.AbstractTagProcessor;
+import com.jamesratzlaff.yaml.spi.impl.IntTagProcessor;
+import com.typesafe.config.ConfigIncludeContext;
+import com.typesafe.config.ConfigObject;
+import com.typesafe.config.ConfigOrigin;
+import com.typesafe.config.ConfigValue;
+import com.typesafe.config.ConfigValueFactory;
+import com.typesafe.config.ConfigValueType;
+
+public class TagProcessorServiceTest {
+	private static final Tag CUSTOM = new Tag("!custom");
+
+	private static TagProcessorService service() {
+		return TagProcessorService.getInstance();
+	}
+
+	private static ConfigValue convert(Tag tag, String value) {
+		return service().getConfigValue(null, tag, value, null);
+	}
+
+	@Test
+	public void aReprioritisedBuiltInKeepsConvertingLikeTheBuiltIn() throws Exception {
+		TagProcessor processor = new IntTagProcessor().withTags("!int").withPriority(10);
+		service().register(processor);
+		try {
+			assertSame(processor, service().getTagProcessor(Tag.INT));
+			assertEquals(ConfigValueType.NUMBER, convert(new Tag("!int"), "42").valueType());
+			ConfigObject root = (ConfigObject) YamlConfigProvider
+					.parse("count: 42".getBytes(StandardCharsets.UTF_8), "reprioritised");
+			assertEquals(ConfigValueType.NUMBER, root.get("count").valueType());
+			assertEquals(42, root.get("count").unwrapped());
+		} finally {
+			service().unregister(processor);
+		}
+	}
+
+	@Test
+	public void declaredTagsWinOverCompatibleProcessors() {
+		TagProcessor everything = new Everything(100);
+		service().register(everything);
+		try {
+			assertEquals(ConfigValueType.NUMBER, convert(Tag.INT, "42").valueType());
+			assertEquals("everything", convert(CUSTOM, "42").unwrapped());
+		} finally {
+			service().unregister(everything);
+		}
+	}
+
+	@Test
+	public void tiesInPriorityGoToTheClassNameThatSortsFirst() {
+		TagProcessor second = new SecondCustom();
+		TagProcessor first = new FirstCustom();
+		service().register(second);
+		service().register(first);
+		try {
+			assertSame(first, service().getTagProcessor(CUSTOM));
+		} finally {
+			service().unregister(first);
+			service().unregister(second);
+		}
+	}
+
+	@Test
+	public void registeringAndUnregisteringChangesWhatATagResolvesTo() {
+		assertEquals("42", convert(CUSTOM, "42").unwrapped());
+		TagProcessor custom = new FirstCustom();
+		service().register(custom);
+		try {
+			assertEquals("first", convert(CUSTOM, "42").unwrapped());
+			TagProcessor higher = new Everything(1);
+			service().register(higher);
+			assertEquals("first", convert(CUSTOM, "42").unwrapped());
+			assertTrue(service().unregister(higher));
+			assertFalse(service().unregister(higher));
+		} finally {
+			assertTrue(service().unregister(custom));
+		}
+		assertEquals("42", convert(CUSTOM, "42").unwrapped());
+	}
+
+	@Test
+	public void onlyTagsNothingHandlesAfterDiscoveryAreReported() {
+		List<LogRecord> warnings = new ArrayList<LogRecord>();
+		Handler handler = new Handler() {
+			@Override
+			public void publish(LogRecord record) {
+				if (record.getLevel().intValue() >= Level.WARNING.intValue()) {
+					warnings.add(record);
+				}
+			}
+
+			@Override
+			public void flush() {
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		Logger logger = Logger.getLogger(TagProcessorService.class.getName());
+		logger.addHandler(handler);
+		try {
+			assertEquals("2001-12-14", convert(Tag.TIMESTAMP, "2001-12-14").unwrapped());
+			assertEquals("AQI=", convert(Tag.BINARY, "AQI=").unwrapped());
+			assertTrue(warnings.isEmpty());
+			Tag unknown = new Tag("!nothingHandlesThis");
+			assertEquals("a", convert(unknown, "a").unwrapped());
+			assertEquals("b", convert(unknown, "b").unwrapped());
+			assertEquals(1, warnings.size());
+			assertEquals(unknown, warnings.get(0).getParameters()[0]);
+		} finally {
+			logger.removeHandler(handler);
+		}
+	}
+
+	private static class Everything extends AbstractTagProcessor {
+		private final int priority;
+
+		Everything(int priority) {
+			super(tag -> true);
+			this.priority = priority;
+		}
+
+		@Override
+		public int getPriority() {
+			return priority;
+		}
+
+		@Override
+		public ConfigValue apply(ConfigOrigin origin, String strValue, ConfigIncludeContext includeContext) {
+			return ConfigValueFactory.fromAnyRef("everything");
+		}
+	}
+
+	private static class FirstCustom extends AbstractTagProcessor {
+		FirstCustom() {
+			super(CUSTOM);
+		}
+
+		@Override
+		public ConfigValue apply(ConfigOrigin origin, String strValue, ConfigIncludeContext includeContext) {
+			return ConfigValueFactory.fromAnyRef("first");
+		}
+	}
+
+	private static class SecondCustom extends AbstractTagProcessor {
+		SecondCustom() {
+			super(CUSTOM);
+		}
+
+		@Override
+		public ConfigValue apply(ConfigOrigin origin, String strValue, ConfigIncludeContext includeContext) {
+			return ConfigValueFactory.fromAnyRef("second");
+		}
+	}
+
+}
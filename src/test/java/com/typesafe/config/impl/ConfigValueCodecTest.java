@@ -0,0 +1,112 @@
+package com.typesafe.config.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigOrigin;
+import com.typesafe.config.ConfigOriginFactory;
+import com.typesafe.config.ConfigParseOptions;
+import com.typesafe.config.ConfigRenderOptions;
+import com.typesafe.config.ConfigValue;
+
+public class ConfigValueCodecTest {
+	private static final ConfigRenderOptions RENDER = ConfigRenderOptions.defaults().setJson(false);
+
+	private static final String HOCON = "int = 1\nlong = 9876543210\ndouble = 1.5\nbool = true\nnothing = null\n"
+			+ "quoted = \"quoted\"\nunquoted = bare words\nlist = [1, two, { three = 3 }]\n"
+			+ "nested { deeper { value = deep } }\nref = ${nested.deeper.value}\noptional = ${?missing}\n"
+			+ "concat = prefix ${int} suffix\n";
+
+	private static byte[] write(ConfigValue value) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		ConfigValueCodec.write(out, value);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static ConfigValue read(byte[] bytes) throws IOException {
+		return ConfigValueCodec.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+	}
+
+	@Test
+	public void roundTripsUnresolvedValues() throws IOException {
+		ConfigValue value = ConfigFactory.parseString(HOCON).root();
+		ConfigValue read = read(write(value));
+		assertEquals(value.render(RENDER), read.render(RENDER));
+		assertEquals(value.origin().lineNumber(), read.origin().lineNumber());
+		assertEquals(ConfigFactory.parseString(HOCON).resolve().root(),
+				((AbstractConfigObject) read).toConfig().resolve().root());
+	}
+
+	@Test
+	public void roundTripsStringsLongerThanAChunk() throws IOException {
+		char[] chars = new char[20000];
+		Arrays.fill(chars, '\u00e9');
+		String text = new String(chars);
+		ConfigValue value = ConfigFactory.parseMap(Collections.singletonMap("text", text)).root();
+		assertEquals(text, ((AbstractConfigObject) read(write(value))).toConfig().getString("text"));
+	}
+
+	@Test
+	public void movesOriginsOntoANewBase() throws IOException {
+		ConfigOrigin base = ConfigOriginFactory.newSimple("before");
+		ConfigValue value = ConfigFactory.parseString("aa = 1", ConfigParseOptions.defaults()
+				.setOriginDescription("before")).root();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		ConfigValueCodec.write(out, value, base);
+		out.flush();
+		ConfigValue read = ConfigValueCodec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())),
+				ConfigOriginFactory.newSimple("after"));
+		assertEquals("after: 1", ((AbstractConfigObject) read).get("aa").origin().description());
+	}
+
+	@Test(expected = EOFException.class)
+	public void aTruncatedValueFailsWithAnEOFException() throws IOException {
+		byte[] bytes = write(ConfigFactory.parseString(HOCON).root());
+		read(Arrays.copyOf(bytes, bytes.length / 2));
+	}
+
+	@Test(expected = EOFException.class)
+	public void aLengthLongerThanTheInputFailsWithoutAllocatingIt() throws IOException {
+		byte[] bytes = write(ConfigFactory.parseString("aa = bb").root());
+		// the length of the key is written right after the object's size
+		int at = indexOf(bytes, new byte[] { 0, 0, 0, 2, 'a', 'a' });
+		bytes[at] = 0x7f;
+		read(bytes);
+	}
+
+	@Test(expected = StreamCorruptedException.class)
+	public void aNegativeLengthIsRejected() throws IOException {
+		byte[] bytes = write(ConfigFactory.parseString("aa = bb").root());
+		int at = indexOf(bytes, new byte[] { 0, 0, 0, 2, 'a', 'a' });
+		bytes[at] = (byte) 0xff;
+		read(bytes);
+	}
+
+	private static int indexOf(byte[] bytes, byte[] part) {
+		outer: for (int i = 0; i <= bytes.length - part.length; i++) {
+			for (int j = 0; j < part.length; j++) {
+				if (bytes[i + j] != part[j]) {
+					continue outer;
+				}
+			}
+			return i;
+		}
+		throw new AssertionError("not found");
+	}
+
+}